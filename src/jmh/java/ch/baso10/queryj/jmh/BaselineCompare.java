@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.jmh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares a JMH CSV result file with the committed baseline.
+ *
+ * Only time per operation and normalized allocation (B/op) are compared, both are "lower is better". Usage:
+ * <pre>
+ * BaselineCompare &lt;baseline.csv&gt; &lt;result.csv&gt; [thresholdPercent] [failOnRegression]
+ * </pre>
+ *
+ * @author baso10
+ */
+public class BaselineCompare
+{
+
+  private static final String PACKAGE = BaselineCompare.class.getPackage().getName() + ".";
+
+  public static void main(String[] args) throws IOException
+  {
+    if(args.length < 2)
+    {
+      System.err.println("Usage: BaselineCompare <baseline.csv> <result.csv> [thresholdPercent] [failOnRegression]");
+      System.exit(2);
+    }
+    Map<String, Double> baseline = read(args[0]);
+    Map<String, Double> current = read(args[1]);
+    double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+    boolean fail = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+    int regressions = 0;
+    System.out.println(String.format(Locale.ROOT, "%-70s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Delta"));
+    for(Map.Entry<String, Double> entry : current.entrySet())
+    {
+      Double base = baseline.get(entry.getKey());
+      if(base == null)
+      {
+        System.out.println(String.format(Locale.ROOT, "%-70s %14s %14.3f %9s", entry.getKey(), "-", entry.getValue(), "new"));
+        continue;
+      }
+      double delta = base == 0 ? 0 : (entry.getValue() - base) * 100.0 / base;
+      String flag = "";
+      if(delta > threshold)
+      {
+        flag = "  REGRESSION";
+        regressions++;
+      }
+      System.out.println(String.format(Locale.ROOT, "%-70s %14.3f %14.3f %+8.1f%%%s", entry.getKey(), base, entry.getValue(), delta, flag));
+    }
+    System.out.println(regressions + " regression(s) above " + threshold + "%");
+    if(fail && regressions > 0)
+    {
+      System.exit(1);
+    }
+  }
+
+  private static Map<String, Double> read(String file) throws IOException
+  {
+    Map<String, Double> scores = new LinkedHashMap<>();
+    List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+    for(int i = 1; i < lines.size(); i++)
+    {
+      List<String> columns = split(lines.get(i));
+      if(columns.size() < 7)
+      {
+        continue;
+      }
+      String name = columns.get(0);
+      String unit = columns.get(6);
+      if(unit.endsWith("/op"))
+      {
+        scores.put(name.replace(PACKAGE, ""), Double.parseDouble(columns.get(4)));
+      }
+    }
+    return scores;
+  }
+
+  private static List<String> split(String line)
+  {
+    List<String> columns = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    boolean quoted = false;
+    for(int i = 0; i < line.length(); i++)
+    {
+      char c = line.charAt(i);
+      if(c == '"')
+      {
+        quoted = !quoted;
+      }
+      else if(c == ',' && !quoted)
+      {
+        columns.add(sb.toString());
+        sb.setLength(0);
+      }
+      else
+      {
+        sb.append(c);
+      }
+    }
+    columns.add(sb.toString());
+    return columns;
+  }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.jmh;
+
+import ch.baso10.queryj.core.CompiledQuery;
+import ch.baso10.queryj.core.ImmutableQueryBuilder;
+import ch.baso10.queryj.core.QJFilterSpec;
+import ch.baso10.queryj.core.QJParam;
+import ch.baso10.queryj.core.QueryBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Rendering and filter building benchmarks for {@link QueryBuilder}.
+ *
+ * Shapes are measured by building the query and rendering it once (what a request does), and by rendering an already
+ * built query (what logging, metrics and the executor do on the same instance).
+ *
+ * @author baso10
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuilderBenchmark
+{
+
+  private QueryBuilder flat;
+  private QueryBuilder nested;
+  private QueryBuilder joins;
+  private QueryBuilder searchForm;
+  private CompiledQuery compiledSearchForm;
+  private Object[] searchFormValues;
+  private final StringBuilder buffer = new StringBuilder(4096);
+  private static final ImmutableQueryBuilder JOINS_BASE = ImmutableQueryBuilder.create()
+          .select("t.id, a.street, o.total").from("Customer", "t")
+          .innerJoin("Address", "a", "a.customerId = t.id AND a.status = :status", QJParam.p("status", 1))
+          .innerJoin("Orders", "o", "o.customerId = t.id");
+
+  private static final QJFilterSpec SEARCH_SPEC = searchSpec();
+  private static final Map<String, String> SEARCH_VALUES = searchValues();
+
+  @Setup
+  public void setup()
+  {
+    flat = flatFilter();
+    nested = nestedGroups();
+    joins = manyJoins();
+    searchForm = searchForm();
+    compiledSearchForm = searchForm().compile();
+    searchFormValues = compiledSearchForm.getParams().values().toArray();
+  }
+
+  static QueryBuilder flatFilter()
+  {
+    return new QueryBuilder().select("t.id, t.name, t.status").from("Customer", "t")
+            .andWhere("t.tenantId = :tenantId", QJParam.p("tenantId", 42))
+            .andWhere("t.deleted = :deleted", QJParam.p("deleted", false))
+            .andCompare("t.name", "Smith")
+            .andCompare("t.city", "=Zurich")
+            .andCompare("t.age", ">=30", Integer.class)
+            .orderBy("t.name")
+            .limit(50).offset(100);
+  }
+
+  static QueryBuilder nestedGroups()
+  {
+    QueryBuilder inner = new QueryBuilder("i")
+            .andCompare("t.type", "=A")
+            .andCompare("t.score", ">10", Integer.class);
+    QueryBuilder middle = new QueryBuilder("m")
+            .andCompare("t.region", "=EU")
+            .orWhere(inner);
+    QueryBuilder other = new QueryBuilder("o")
+            .andCompare("t.region", "=US")
+            .andCompare("t.score", ">100", Long.class);
+    return new QueryBuilder().from("Customer", "t")
+            .andWhere("t.tenantId = :tenantId", QJParam.p("tenantId", 42))
+            .andWhere(middle)
+            .orWhere(other)
+            .orderBy("t.id");
+  }
+
+  static QueryBuilder manyJoins()
+  {
+    QueryBuilder query = new QueryBuilder().select("t.id, a.street, o.total").from("Customer", "t")
+            .innerJoin("Address", "a", "a.customerId = t.id AND a.status = :status", QJParam.p("status", 1))
+            .innerJoin("Orders", "o", "o.customerId = t.id");
+    for(int i = 0; i < 8; i++)
+    {
+      query.leftJoin("Extension" + i, "e" + i, "e" + i + ".customerId = t.id");
+    }
+    return query.andCompare("t.name", "Sm*").limit(20);
+  }
+
+  static QueryBuilder searchForm()
+  {
+    QueryBuilder query = new QueryBuilder().select("t.id, t.name").from("Product", "t");
+    for(int i = 0; i < 8; i++)
+    {
+      query.andCompare("t.text" + i, "value" + i);
+      query.andCompare("t.num" + i, ">=" + i, Integer.class);
+      query.andCompare("t.code" + i, "=C" + i);
+    }
+    return query.orderBy("t.id").limit(25);
+  }
+
+  static QJFilterSpec searchSpec()
+  {
+    QJFilterSpec spec = new QJFilterSpec();
+    for(int i = 0; i < 8; i++)
+    {
+      spec.field("text" + i, "t", "text" + i, String.class)
+              .field("num" + i, "t", "num" + i, Integer.class)
+              .field("code" + i, "t", "code" + i, String.class);
+    }
+    return spec;
+  }
+
+  /**
+   * Same values as {@link #searchForm()}.
+   */
+  static Map<String, String> searchValues()
+  {
+    Map<String, String> values = new HashMap<>();
+    for(int i = 0; i < 8; i++)
+    {
+      values.put("text" + i, "value" + i);
+      values.put("num" + i, ">=" + i);
+      values.put("code" + i, "=C" + i);
+    }
+    return values;
+  }
+
+  @Benchmark
+  public void buildFlatFilter(Blackhole bh)
+  {
+    QueryBuilder query = flatFilter();
+    bh.consume(query.getSql());
+    bh.consume(query.getParams());
+  }
+
+  @Benchmark
+  public void buildNestedGroups(Blackhole bh)
+  {
+    QueryBuilder query = nestedGroups();
+    bh.consume(query.getSql());
+    bh.consume(query.getParams());
+  }
+
+  @Benchmark
+  public void buildManyJoins(Blackhole bh)
+  {
+    QueryBuilder query = manyJoins();
+    bh.consume(query.getSql());
+    bh.consume(query.getParams());
+  }
+
+  @Benchmark
+  public void buildSearchForm(Blackhole bh)
+  {
+    QueryBuilder query = searchForm();
+    bh.consume(query.getSql());
+    bh.consume(query.getParams());
+  }
+
+  @Benchmark
+  public ImmutableQueryBuilder forkImmutable()
+  {
+    return JOINS_BASE.andCompare("t.name", "Sm*").limit(20);
+  }
+
+  @Benchmark
+  public void buildForkedImmutable(Blackhole bh)
+  {
+    ImmutableQueryBuilder query = JOINS_BASE.andCompare("t.name", "Sm*").limit(20);
+    bh.consume(query.getSql());
+    bh.consume(query.getParams());
+  }
+
+  @Benchmark
+  public StringBuilder appendSqlSearchForm()
+  {
+    buffer.setLength(0);
+    return searchForm().appendSql(buffer);
+  }
+
+  @Benchmark
+  public QueryBuilder andCompareSearchForm()
+  {
+    return searchForm();
+  }
+
+  @Benchmark
+  public QueryBuilder andCompareAllSearchForm()
+  {
+    return new QueryBuilder().select("t.id, t.name").from("Product", "t")
+            .andCompareAll(SEARCH_SPEC, SEARCH_VALUES)
+            .orderBy("t.id").limit(25);
+  }
+
+  @Benchmark
+  public String getSqlFlatFilter()
+  {
+    return flat.getSql();
+  }
+
+  @Benchmark
+  public String getSqlNestedGroups()
+  {
+    return nested.getSql();
+  }
+
+  @Benchmark
+  public String getSqlManyJoins()
+  {
+    return joins.getSql();
+  }
+
+  @Benchmark
+  public String getSqlSearchForm()
+  {
+    return searchForm.getSql();
+  }
+
+  @Benchmark
+  public Object getParamsSearchForm()
+  {
+    return searchForm.getParams();
+  }
+
+  @Benchmark
+  public Object bindCompiledSearchForm()
+  {
+    return compiledSearchForm.bind(searchFormValues);
+  }
+
+}
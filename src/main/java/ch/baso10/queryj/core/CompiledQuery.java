@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-rendered query. The SQL is rendered once by {@link QueryBuilder#compile()}, afterwards only the
+ * parameter values are supplied.
+ *
+ * Parameter slots keep the order in which the parameters were added to the builder, see {@link #getParamNames()}.
+ *
+ * @author baso10
+ */
+public class CompiledQuery
+{
+
+  private final String sql;
+  private final String[] names;
+  private final Object[] values;
+  private final Map<String, Integer> index;
+  private final QJPositionalSql positional;
+  private final int[] positionalSlots;
+
+  protected CompiledQuery(String sql, List<QJParam> params)
+  {
+    this.sql = sql;
+    Map<String, Integer> index = new HashMap<>();
+    String[] names = new String[params.size()];
+    Object[] values = new Object[params.size()];
+    int size = 0;
+    for(QJParam param : params)
+    {
+      if(!index.containsKey(param.getName()))
+      {
+        index.put(param.getName(), size);
+        names[size] = param.getName();
+        values[size] = param.getValue();
+        size++;
+      }
+    }
+    this.names = Arrays.copyOf(names, size);
+    this.values = Arrays.copyOf(values, size);
+    this.index = Collections.unmodifiableMap(index);
+    this.positional = QJPositionalSql.parse(sql);
+    this.positionalSlots = new int[positional.getSlotCount()];
+    for(int i = 0; i < positionalSlots.length; i++)
+    {
+      Integer slot = index.get(positional.getSlotName(i));
+      if(slot == null)
+      {
+        slot = index.get(":" + positional.getSlotName(i));
+      }
+      positionalSlots[i] = slot == null ? -1 : slot;
+    }
+  }
+
+  private CompiledQuery(CompiledQuery template, Object[] values)
+  {
+    this.sql = template.sql;
+    this.names = template.names;
+    this.values = values;
+    this.index = template.index;
+    this.positional = template.positional;
+    this.positionalSlots = template.positionalSlots;
+  }
+
+  public String getSql()
+  {
+    return sql;
+  }
+
+  QJPositionalSql getPositional()
+  {
+    return positional;
+  }
+
+  QJBindings getBindings()
+  {
+    return QJBindings.of(getPositionalParams());
+  }
+
+  /**
+   * @return SQL with JDBC <code>?</code> placeholders
+   */
+  public String getPositionalSql()
+  {
+    return positional.getSql();
+  }
+
+  /**
+   * @return the compiled values in <code>?</code> order
+   */
+  public Object[] getPositionalParams()
+  {
+    return bindPositional(values);
+  }
+
+  /**
+   * Binds new values by slot for {@link #getPositionalSql()}.
+   *
+   * @param values one value per slot, in {@link #getParamNames()} order
+   * @return values in <code>?</code> order, a name used more than once is repeated
+   */
+  public Object[] bindPositional(Object... values)
+  {
+    if(values.length != names.length)
+    {
+      throw new IllegalArgumentException("Expected " + names.length + " values, got " + values.length);
+    }
+    Object[] bound = new Object[positionalSlots.length];
+    for(int i = 0; i < bound.length; i++)
+    {
+      if(positionalSlots[i] < 0)
+      {
+        throw new IllegalArgumentException("No value for parameter: " + positional.getSlotName(i));
+      }
+      bound[i] = values[positionalSlots[i]];
+    }
+    return bound;
+  }
+
+  public List<String> getParamNames()
+  {
+    return Collections.unmodifiableList(Arrays.asList(names));
+  }
+
+  public int getParamCount()
+  {
+    return names.length;
+  }
+
+  /**
+   * @return the values the query was compiled with
+   */
+  public Map<String, Object> getParams()
+  {
+    return new QJParamMap(names, values, index);
+  }
+
+  /**
+   * Binds new values by slot.
+   *
+   * @param values one value per slot, in {@link #getParamNames()} order
+   * @return read-only parameter map for {@link #getSql()}
+   */
+  public Map<String, Object> bind(Object... values)
+  {
+    if(values.length != names.length)
+    {
+      throw new IllegalArgumentException("Expected " + names.length + " values, got " + values.length);
+    }
+    return new QJParamMap(names, values.clone(), index);
+  }
+
+  /**
+   * Same SQL and slots with new values, nothing is rendered or parsed again.
+   *
+   * @param values one value per slot, in {@link #getParamNames()} order
+   * @return compiled query with the new values
+   */
+  public CompiledQuery rebind(Object... values)
+  {
+    if(values.length != names.length)
+    {
+      throw new IllegalArgumentException("Expected " + names.length + " values, got " + values.length);
+    }
+    return withValues(values.clone());
+  }
+
+  /**
+   * @param values values in slot order, not copied
+   */
+  CompiledQuery withValues(Object[] values)
+  {
+    return new CompiledQuery(this, values);
+  }
+
+  /**
+   * Binds new values by name, slots not contained in the map keep their compiled value.
+   *
+   * @param values values by parameter name
+   * @return read-only parameter map for {@link #getSql()}
+   */
+  public Map<String, Object> bind(Map<String, ?> values)
+  {
+    Object[] bound = this.values.clone();
+    for(Map.Entry<String, ?> entry : values.entrySet())
+    {
+      Integer i = index.get(entry.getKey());
+      if(i == null)
+      {
+        throw new IllegalArgumentException("Unknown parameter: " + entry.getKey());
+      }
+      bound[i] = entry.getValue();
+    }
+    return new QJParamMap(names, bound, index);
+  }
+
+}
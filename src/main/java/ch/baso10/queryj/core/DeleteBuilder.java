@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Builds <code>DELETE FROM table WHERE ...</code> with the same predicate methods as {@link QueryBuilder}.
+ *
+ * Unlike a query, values that can not be compared throw instead of being skipped, text is compared with <code>=</code>,
+ * nested groups must be {@link QueryBuilder#strict() strict} and a delete without condition needs {@link #allRows()}.
+ *
+ * @author baso10
+ */
+public class DeleteBuilder extends WhereBuilder<DeleteBuilder>
+{
+
+  private QJTable from;
+  private boolean allRows;
+
+  public DeleteBuilder()
+  {
+  }
+
+  public DeleteBuilder(String paramKey)
+  {
+    super(paramKey);
+  }
+
+  public DeleteBuilder from(String tableName)
+  {
+    return from(tableName, null);
+  }
+
+  public DeleteBuilder from(String tableName, String alias)
+  {
+    this.from = new QJTable(tableName, alias);
+    modified();
+    return this;
+  }
+
+  /**
+   * Allows rendering without a condition, otherwise a statement without WHERE clause throws IllegalStateException so
+   * that skipped conditions can not delete every row.
+   *
+   * @return this
+   */
+  public DeleteBuilder allRows()
+  {
+    this.allRows = true;
+    modified();
+    return this;
+  }
+
+  /**
+   * Values that would be skipped throw and text is compared with <code>=</code>, see {@link WhereBuilder#isStrict()}.
+   */
+  @Override
+  boolean isStrict()
+  {
+    return true;
+  }
+
+  @Override
+  Set<String> getTables()
+  {
+    return from == null ? Collections.<String>emptySet() : Collections.singleton(from.getName());
+  }
+
+  @Override
+  protected StringBuilder render(StringBuilder sb)
+  {
+    if(from == null)
+    {
+      throw new IllegalStateException("No table to delete from");
+    }
+    getDialect().appendDeleteFrom(sb, from.getName(), from.getAlias());
+    if(!this.where.isEmpty())
+    {
+      sb.append(" WHERE ");
+      appendWhereSql(sb);
+    }
+    else if(!allRows)
+    {
+      throw new IllegalStateException("No condition to delete from " + from.getName() + ", call allRows() to delete every row");
+    }
+    return sb;
+  }
+
+  @Override
+  public int estimateLength()
+  {
+    int length = 24 + estimateWhereLength();
+    if(from != null)
+    {
+      length += from.getName().length() + (from.getAlias() == null ? 0 : from.getAlias().length());
+    }
+    return length;
+  }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, thread-safe counterpart of {@link QueryBuilder}. Every method returns a new instance that shares all
+ * earlier steps with its base, forking costs one small node and no copying or locking. A base query can be defined
+ * once in a static field and forked per request from any thread:
+ *
+ * <pre>
+ * static final ImmutableQueryBuilder ORDERS = ImmutableQueryBuilder.create()
+ *         .from("orders", "o")
+ *         .innerJoin("customer", "c", "c.id = o.customerId");
+ *
+ * CompiledQuery query = ORDERS.andCompare("o.tenantId", tenantId).andCompare("c.name", name).compile();
+ * </pre>
+ *
+ * The steps are replayed on a {@link QueryBuilder} when an instance is rendered the first time, so parameter names
+ * are generated exactly as by the mutable builder and an invalid value handler is called at that point. The rendered
+ * result is kept per instance as a {@link CompiledQuery}. An instance forked more than once keeps the state of its
+ * steps, its forks only replay their own steps on a copy of it.
+ *
+ * @author baso10
+ */
+public final class ImmutableQueryBuilder
+{
+
+  private static final ImmutableQueryBuilder EMPTY = new ImmutableQueryBuilder(null, null, null, 0);
+
+  private final String paramKey;
+  private final ImmutableQueryBuilder parent;
+  private final Consumer<QueryBuilder> step;
+  private final int size;
+  private volatile CompiledQuery compiled;
+  private volatile int forks;
+  private volatile QueryBuilder snapshot;
+
+  private ImmutableQueryBuilder(String paramKey, ImmutableQueryBuilder parent, Consumer<QueryBuilder> step, int size)
+  {
+    this.paramKey = paramKey;
+    this.parent = parent;
+    this.step = step;
+    this.size = size;
+  }
+
+  public static ImmutableQueryBuilder create()
+  {
+    return EMPTY;
+  }
+
+  /**
+   * @param paramKey prefix of generated parameter names
+   * @return empty builder
+   */
+  public static ImmutableQueryBuilder create(String paramKey)
+  {
+    return new ImmutableQueryBuilder(paramKey, null, null, 0);
+  }
+
+  private ImmutableQueryBuilder with(Consumer<QueryBuilder> step)
+  {
+    if(forks < 2)
+    {
+      forks++;
+    }
+    return new ImmutableQueryBuilder(paramKey, this, step, size + 1);
+  }
+
+  public ImmutableQueryBuilder from(String tableName)
+  {
+    return with(q -> q.from(tableName));
+  }
+
+  public ImmutableQueryBuilder from(String tableName, String alias)
+  {
+    return with(q -> q.from(tableName, alias));
+  }
+
+  public ImmutableQueryBuilder select(String select)
+  {
+    return with(q -> q.select(select));
+  }
+
+  /**
+   * @see QueryBuilder#dialect(QJDialect)
+   */
+  public ImmutableQueryBuilder dialect(QJDialect dialect)
+  {
+    return with(q -> q.dialect(dialect));
+  }
+
+  /**
+   * @see QueryBuilder#reuseParams(boolean)
+   */
+  public ImmutableQueryBuilder reuseParams(boolean reuse)
+  {
+    return with(q -> q.reuseParams(reuse));
+  }
+
+  /**
+   * @see QueryBuilder#strict()
+   */
+  public ImmutableQueryBuilder strict()
+  {
+    return with(q -> q.strict());
+  }
+
+  public ImmutableQueryBuilder select(QJColumn<?>... columns)
+  {
+    QJColumn<?>[] copy = columns.clone();
+    return with(q -> q.select(copy));
+  }
+
+  public ImmutableQueryBuilder distinct(boolean distinct)
+  {
+    return with(q -> q.distinct(distinct));
+  }
+
+  public ImmutableQueryBuilder innerJoin(String table, String alias, String on, QJParam... params)
+  {
+    QJParam[] copy = params.clone();
+    return with(q -> q.innerJoin(table, alias, on, copy));
+  }
+
+  public ImmutableQueryBuilder leftJoin(String table, String alias, String on, QJParam... params)
+  {
+    QJParam[] copy = params.clone();
+    return with(q -> q.leftJoin(table, alias, on, copy));
+  }
+
+  public ImmutableQueryBuilder andWhere(String where, QJParam... params)
+  {
+    QJParam[] copy = params == null ? null : params.clone();
+    return with(q -> q.andWhere(where, copy));
+  }
+
+  public ImmutableQueryBuilder orWhere(String where, QJParam... params)
+  {
+    QJParam[] copy = params == null ? null : params.clone();
+    return with(q -> q.orWhere(where, copy));
+  }
+
+  public ImmutableQueryBuilder andWhere(ImmutableQueryBuilder where, QJParam... params)
+  {
+    QJParam[] copy = params == null ? null : params.clone();
+    return with(q -> q.andWhere(where.toQueryBuilder(), copy));
+  }
+
+  public ImmutableQueryBuilder orWhere(ImmutableQueryBuilder where, QJParam... params)
+  {
+    QJParam[] copy = params == null ? null : params.clone();
+    return with(q -> q.orWhere(where.toQueryBuilder(), copy));
+  }
+
+  public ImmutableQueryBuilder onInvalidValue(QJInvalidValueHandler invalidValueHandler)
+  {
+    return with(q -> q.onInvalidValue(invalidValueHandler));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, int value)
+  {
+    return with(q -> q.andCompare(field, value));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, long value)
+  {
+    return with(q -> q.andCompare(field, value));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, double value)
+  {
+    return with(q -> q.andCompare(field, value));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, QJOperator operator, int value)
+  {
+    return with(q -> q.andCompare(field, operator, value));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, QJOperator operator, long value)
+  {
+    return with(q -> q.andCompare(field, operator, value));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, QJOperator operator, double value)
+  {
+    return with(q -> q.andCompare(field, operator, value));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, Object value)
+  {
+    return with(q -> q.andCompare(field, value));
+  }
+
+  public ImmutableQueryBuilder andCompare(String fieldTableAlias, String field, Object value, Class classType)
+  {
+    return with(q -> q.andCompare(fieldTableAlias, field, value, classType));
+  }
+
+  public ImmutableQueryBuilder andCompare(String field, Object value, Class classType)
+  {
+    return with(q -> q.andCompare(field, value, classType));
+  }
+
+  public ImmutableQueryBuilder andCompare(QJColumn<?> column, Object value)
+  {
+    return with(q -> q.andCompare(column, value));
+  }
+
+  /**
+   * @see QueryBuilder#andCompareAll(QJFilterSpec, Map)
+   */
+  public ImmutableQueryBuilder andCompareAll(QJFilterSpec spec, Map<String, ?> values)
+  {
+    Map<String, ?> copy = values == null ? null : new HashMap<>(values);
+    return with(q -> q.andCompareAll(spec, copy));
+  }
+
+  public ImmutableQueryBuilder maxInListSize(int maxInListSize)
+  {
+    if(maxInListSize < 1)
+    {
+      throw new IllegalArgumentException("maxInListSize must be positive: " + maxInListSize);
+    }
+    return with(q -> q.maxInListSize(maxInListSize));
+  }
+
+  /**
+   * @param field field
+   * @param values values, copied
+   * @return new builder
+   * @see QueryBuilder#andIn(String, Collection)
+   */
+  public ImmutableQueryBuilder andIn(String field, Collection<?> values)
+  {
+    List<?> copy = values == null ? null : new ArrayList<>(values);
+    return with(q -> q.andIn(field, copy));
+  }
+
+  public ImmutableQueryBuilder seekAfter(String orderColumns, Object... lastRowValues)
+  {
+    Object[] copy = lastRowValues == null ? null : lastRowValues.clone();
+    return with(q -> q.seekAfter(orderColumns, copy));
+  }
+
+  public ImmutableQueryBuilder seekAfterToken(String orderColumns, String token)
+  {
+    return with(q -> q.seekAfterToken(orderColumns, token));
+  }
+
+  public ImmutableQueryBuilder orderBy(String orderBy)
+  {
+    return with(q -> q.orderBy(orderBy));
+  }
+
+  public ImmutableQueryBuilder groupBy(String groupBy)
+  {
+    return with(q -> q.groupBy(groupBy));
+  }
+
+  public ImmutableQueryBuilder limit(Integer limit)
+  {
+    return with(q -> q.limit(limit));
+  }
+
+  public ImmutableQueryBuilder offset(Integer offset)
+  {
+    return with(q -> q.offset(offset));
+  }
+
+  public ImmutableQueryBuilder addParam(String name, Object value)
+  {
+    return with(q -> q.addParam(name, value));
+  }
+
+  /**
+   * Starts from the state kept by the nearest shared ancestor and replays the steps after it. Shared instances passed
+   * on the way keep a copy of their state for later forks.
+   *
+   * @return new mutable builder with all steps of this instance applied
+   */
+  public QueryBuilder toQueryBuilder()
+  {
+    ImmutableQueryBuilder[] nodes = new ImmutableQueryBuilder[size];
+    QueryBuilder query = null;
+    int start = size;
+    for(ImmutableQueryBuilder node = this; node.step != null; node = node.parent)
+    {
+      QueryBuilder base = node.snapshot;
+      if(base != null)
+      {
+        query = base.copy();
+        break;
+      }
+      nodes[--start] = node;
+    }
+    if(query == null)
+    {
+      query = paramKey == null ? new QueryBuilder() : new QueryBuilder(paramKey);
+    }
+    for(int i = start; i < size; i++)
+    {
+      ImmutableQueryBuilder node = nodes[i];
+      node.step.accept(query);
+      if(node.forks > 1)
+      {
+        QueryBuilder base = query.copy();
+        // renders nested groups once, concurrent readers of the shared groups then find them up to date
+        base.getParamsList();
+        node.snapshot = base;
+      }
+    }
+    return query;
+  }
+
+  /**
+   * Rendered once per instance, concurrent first calls may render twice with the same result.
+   *
+   * @return compiled query
+   */
+  public CompiledQuery compile()
+  {
+    CompiledQuery result = compiled;
+    if(result == null)
+    {
+      result = toQueryBuilder().compile();
+      compiled = result;
+    }
+    return result;
+  }
+
+  public String getSql()
+  {
+    return compile().getSql();
+  }
+
+  /**
+   * @return read-only parameters
+   */
+  public Map<String, Object> getParams()
+  {
+    return compile().getParams();
+  }
+
+  public String getPositionalSql()
+  {
+    return compile().getPositionalSql();
+  }
+
+  public Object[] getPositionalParams()
+  {
+    return compile().getPositionalParams();
+  }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-row <code>INSERT INTO table (columns) VALUES (...), (...)</code> builder.
+ *
+ * Rows are split into chunks that respect {@link #maxParams(int)}, {@link #maxRows(int)} and
+ * {@link #maxSqlLength(int)}. Parameters are named <code>p1..pN</code> per chunk, so every chunk with the same number
+ * of rows shares one SQL text, which is rendered once per builder.
+ *
+ * <pre>
+ * List&lt;CompiledQuery&gt; statements = new InsertBuilder().into("MyTable").columns("id", "name")
+ *         .values(1, "a")
+ *         .values(2, "b")
+ *         .getStatements();
+ * </pre>
+ *
+ * @author baso10
+ */
+public class InsertBuilder
+{
+
+  private String table;
+  private String[] columns;
+  private final List<Object[]> rows = new ArrayList<>();
+  private int maxParams = 32767;
+  private int maxRows = Integer.MAX_VALUE;
+  private int maxSqlLength = 1000000;
+  private final Map<Integer, CompiledQuery> templates = new HashMap<>();
+  private int rowsPerStatement;
+
+  public InsertBuilder into(String table)
+  {
+    this.table = table;
+    templates.clear();
+    rowsPerStatement = 0;
+    return this;
+  }
+
+  public InsertBuilder columns(String... columns)
+  {
+    this.columns = columns.clone();
+    templates.clear();
+    rowsPerStatement = 0;
+    return this;
+  }
+
+  /**
+   * @param row one value per column
+   * @return this
+   */
+  public InsertBuilder values(Object... row)
+  {
+    if(columns == null || row.length != columns.length)
+    {
+      throw new IllegalArgumentException("Expected " + (columns == null ? 0 : columns.length) + " values, got " + row.length);
+    }
+    rows.add(row.clone());
+    return this;
+  }
+
+  /**
+   * @param rows rows with one value per column
+   * @return this
+   */
+  public InsertBuilder rows(Iterable<Object[]> rows)
+  {
+    for(Object[] row : rows)
+    {
+      values(row);
+    }
+    return this;
+  }
+
+  /**
+   * Removes the rows, the rendered SQL texts are kept for the next batch.
+   *
+   * @return this
+   */
+  public InsertBuilder clearRows()
+  {
+    rows.clear();
+    return this;
+  }
+
+  /**
+   * @param maxParams maximum number of bind parameters per statement, e.g. 2100 for SQL Server
+   * @return this
+   */
+  public InsertBuilder maxParams(int maxParams)
+  {
+    this.maxParams = maxParams;
+    rowsPerStatement = 0;
+    return this;
+  }
+
+  /**
+   * @param maxRows maximum number of rows per statement, e.g. 1000 for SQL Server
+   * @return this
+   */
+  public InsertBuilder maxRows(int maxRows)
+  {
+    this.maxRows = maxRows;
+    rowsPerStatement = 0;
+    return this;
+  }
+
+  /**
+   * @param maxSqlLength maximum number of characters per statement
+   * @return this
+   */
+  public InsertBuilder maxSqlLength(int maxSqlLength)
+  {
+    this.maxSqlLength = maxSqlLength;
+    rowsPerStatement = 0;
+    return this;
+  }
+
+  String getTable()
+  {
+    return table;
+  }
+
+  public int getRowCount()
+  {
+    return rows.size();
+  }
+
+  /**
+   * @return number of rows per full chunk
+   */
+  public int getRowsPerStatement()
+  {
+    if(table == null || columns == null || columns.length == 0)
+    {
+      throw new IllegalStateException("Table and columns are required");
+    }
+    if(rowsPerStatement == 0)
+    {
+      int limit = Math.min(maxParams / columns.length, maxRows);
+      int length = getPrefix().length();
+      int rowCount = 0;
+      while(rowCount < limit)
+      {
+        int rowLength = rowCount == 0 ? 0 : 2;
+        for(int j = 0; j < columns.length; j++)
+        {
+          rowLength += (j == 0 ? 3 : 4) + Integer.toString(rowCount * columns.length + j + 1).length();
+        }
+        if(length + rowLength + 1 > maxSqlLength)
+        {
+          break;
+        }
+        length += rowLength + 1;
+        rowCount++;
+      }
+      if(rowCount < 1)
+      {
+        throw new IllegalStateException("Limits do not allow a single row of " + columns.length + " columns");
+      }
+      rowsPerStatement = rowCount;
+    }
+    return rowsPerStatement;
+  }
+
+  /**
+   * @return one statement per chunk
+   */
+  public List<CompiledQuery> getStatements()
+  {
+    int rowsPerStatement = getRowsPerStatement();
+    List<CompiledQuery> statements = new ArrayList<>(rows.size() / rowsPerStatement + 1);
+    for(int start = 0; start < rows.size(); start += rowsPerStatement)
+    {
+      int count = Math.min(rowsPerStatement, rows.size() - start);
+      Object[] values = new Object[count * columns.length];
+      for(int i = 0; i < count; i++)
+      {
+        System.arraycopy(rows.get(start + i), 0, values, i * columns.length, columns.length);
+      }
+      CompiledQuery template = templates.get(count);
+      if(template == null)
+      {
+        template = render(count, values);
+        templates.put(count, template);
+        statements.add(template);
+      }
+      else
+      {
+        statements.add(template.withValues(values));
+      }
+    }
+    return statements;
+  }
+
+  private String getPrefix()
+  {
+    return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+  }
+
+  private CompiledQuery render(int rowCount, Object[] values)
+  {
+    StringBuilder sb = new StringBuilder(getPrefix());
+    List<QJParam> params = new ArrayList<>(values.length);
+    for(int i = 0; i < rowCount; i++)
+    {
+      sb.append(i == 0 ? "(" : ", (");
+      for(int j = 0; j < columns.length; j++)
+      {
+        int index = i * columns.length + j;
+        String name = "p" + (index + 1);
+        sb.append(j == 0 ? ":" : ", :").append(name);
+        params.add(new QJParam(name, values[index]));
+      }
+      sb.append(')');
+    }
+    return new CompiledQuery(sb.toString(), params);
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default executor of {@link QueryExecutor#executeAsync(WhereBuilder, RowMapper)}.
+ *
+ * On JDK 21 and newer every query runs on its own virtual thread, a thread blocked in the driver then costs almost
+ * nothing. Older JDKs get a shared bounded pool of daemon threads, tasks above its queue capacity are rejected.
+ *
+ * @author baso10
+ */
+public final class QJAsync
+{
+
+  public static final int POOL_QUEUE_CAPACITY = 10000;
+
+  private QJAsync()
+  {
+  }
+
+  /**
+   * @return the shared default executor
+   */
+  public static Executor getDefault()
+  {
+    return Holder.EXECUTOR;
+  }
+
+  /**
+   * @return true if the default executor uses virtual threads
+   */
+  public static boolean isVirtual()
+  {
+    return Holder.VIRTUAL;
+  }
+
+  private static final class Holder
+  {
+
+    private static final boolean VIRTUAL;
+    private static final Executor EXECUTOR;
+
+    static
+    {
+      Executor executor = virtualThreadExecutor();
+      VIRTUAL = executor != null;
+      EXECUTOR = executor != null ? executor : boundedPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    }
+
+  }
+
+  private static Executor virtualThreadExecutor()
+  {
+    try
+    {
+      return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+    catch(ReflectiveOperationException | RuntimeException e)
+    {
+      return null;
+    }
+  }
+
+  static Executor boundedPool(int threads)
+  {
+    AtomicInteger count = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(POOL_QUEUE_CAPACITY), runnable ->
+    {
+      Thread thread = new Thread(runnable, "queryj-async-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+}
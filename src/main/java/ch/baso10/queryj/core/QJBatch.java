@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects statements with the same SQL text and executes them as JDBC batches on one prepared statement.
+ *
+ * <pre>
+ * QJBatch batch = new QJBatch(first.getSql());
+ * for(Item item : items)
+ * {
+ *   batch.add(new UpdateBuilder().update("item").set("price", item.getPrice()).andWhere("id = :id", p("id", item.getId())));
+ * }
+ * int[] counts = batch.execute(connection);
+ * </pre>
+ *
+ * @author baso10
+ */
+public class QJBatch
+{
+
+  private final String sql;
+  private final QJPositionalSql positional;
+  private final List<QJBindings> rows = new ArrayList<>();
+  private final Set<String> tables = new LinkedHashSet<>();
+  private int batchSize = 1000;
+
+  /**
+   * @param sql SQL with <code>:name</code> placeholders shared by all statements of the batch
+   */
+  public QJBatch(String sql)
+  {
+    this.sql = sql;
+    this.positional = QJPositionalSql.parse(sql);
+  }
+
+  public QJBatch(WhereBuilder<?> first)
+  {
+    this(first.getSql());
+    add(first);
+  }
+
+  /**
+   * @param batchSize number of statements sent to the driver per <code>executeBatch</code>
+   * @return this
+   */
+  public QJBatch batchSize(int batchSize)
+  {
+    if(batchSize < 1)
+    {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * @param builder builder rendering the SQL of this batch
+   * @return this
+   * @throws IllegalArgumentException if the builder renders a different SQL text
+   */
+  public QJBatch add(WhereBuilder<?> builder)
+  {
+    checkSql(builder.getSql());
+    rows.add(builder.getBindings());
+    tables.addAll(builder.getTables());
+    return this;
+  }
+
+  /**
+   * @param query compiled query with the SQL of this batch
+   * @return this
+   * @throws IllegalArgumentException if the query has a different SQL text
+   */
+  public QJBatch add(CompiledQuery query)
+  {
+    checkSql(query.getSql());
+    rows.add(query.getBindings());
+    return this;
+  }
+
+  /**
+   * @param params parameter values by name
+   * @return this
+   */
+  public QJBatch add(Map<String, ?> params)
+  {
+    rows.add(QJBindings.of(positional.bind(params)));
+    return this;
+  }
+
+  private void checkSql(String other)
+  {
+    if(!sql.equals(other))
+    {
+      throw new IllegalArgumentException("Statement does not match the batch SQL: " + other);
+    }
+  }
+
+  public String getSql()
+  {
+    return sql;
+  }
+
+  public String getPositionalSql()
+  {
+    return positional.getSql();
+  }
+
+  QJPositionalSql getPositional()
+  {
+    return positional;
+  }
+
+  /**
+   * @return tables of the builders added since the last clear or execution
+   */
+  Set<String> getTables()
+  {
+    return tables;
+  }
+
+  public int size()
+  {
+    return rows.size();
+  }
+
+  public void clear()
+  {
+    rows.clear();
+    tables.clear();
+  }
+
+  /**
+   * Prepares the statement once and sends the collected parameter sets in batches of {@link #batchSize(int)}. The
+   * batch is cleared after a successful execution.
+   *
+   * @param connection connection, not closed
+   * @return update counts in the order the statements were added
+   * @throws SQLException if the driver fails
+   */
+  public int[] execute(Connection connection) throws SQLException
+  {
+    int[] counts = new int[rows.size()];
+    if(rows.isEmpty())
+    {
+      return counts;
+    }
+    try(PreparedStatement statement = connection.prepareStatement(positional.getSql()))
+    {
+      int done = 0;
+      int pending = 0;
+      for(QJBindings row : rows)
+      {
+        row.bind(statement);
+        statement.addBatch();
+        if(++pending == batchSize)
+        {
+          done = flush(statement, counts, done);
+          pending = 0;
+        }
+      }
+      if(pending > 0)
+      {
+        flush(statement, counts, done);
+      }
+    }
+    clear();
+    return counts;
+  }
+
+  private static int flush(PreparedStatement statement, int[] counts, int done) throws SQLException
+  {
+    int[] result = statement.executeBatch();
+    System.arraycopy(result, 0, counts, done, result.length);
+    return done + result.length;
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Parameters of one execution in <code>?</code> order. Parameters of a builder are bound with
+ * {@link QJParam#bind(PreparedStatement, int)}, so primitive parameters are not boxed; the values are only boxed when a
+ * listener or the result cache asks for them.
+ *
+ * @author baso10
+ */
+final class QJBindings
+{
+
+  private final QJParam[] params;
+  private Object[] values;
+
+  private QJBindings(QJParam[] params, Object[] values)
+  {
+    this.params = params;
+    this.values = values;
+  }
+
+  /**
+   * @param params parameters in <code>?</code> order, not copied
+   */
+  static QJBindings of(QJParam[] params)
+  {
+    return new QJBindings(params, null);
+  }
+
+  /**
+   * @param values values in <code>?</code> order, not copied
+   */
+  static QJBindings of(Object[] values)
+  {
+    return new QJBindings(null, values);
+  }
+
+  void bind(PreparedStatement statement) throws SQLException
+  {
+    if(params == null)
+    {
+      QJPositionalSql.setParameters(statement, values);
+      return;
+    }
+    for(int i = 0; i < params.length; i++)
+    {
+      params[i].bind(statement, i + 1);
+    }
+  }
+
+  /**
+   * @return values in <code>?</code> order
+   */
+  Object[] getValues()
+  {
+    if(values == null)
+    {
+      Object[] boxed = new Object[params.length];
+      for(int i = 0; i < params.length; i++)
+      {
+        boxed[i] = params[i].getValue();
+      }
+      values = boxed;
+    }
+    return values;
+  }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Number conversions for compare values that never throw, invalid input returns null.
+ *
+ * Results are the same as parsing <code>String.valueOf(value)</code>, but integral numbers and character sequences
+ * are converted without creating that string.
+ *
+ * @author baso10
+ */
+final class QJCoercion
+{
+
+  /**
+   * Marker for invalid input, only ambiguous for {@link Long#MIN_VALUE} which is checked separately.
+   */
+  private static final long INVALID = Long.MIN_VALUE;
+
+  private QJCoercion()
+  {
+  }
+
+  static Integer toInteger(Object value)
+  {
+    if(value instanceof Integer)
+    {
+      return (Integer) value;
+    }
+    if(value instanceof Short || value instanceof Byte)
+    {
+      return ((Number) value).intValue();
+    }
+    if(value instanceof Long)
+    {
+      long l = (Long) value;
+      return l < Integer.MIN_VALUE || l > Integer.MAX_VALUE ? null : (int) l;
+    }
+    long result = parseLong(toCharSequence(value), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    return result == INVALID ? null : (int) result;
+  }
+
+  static Long toLong(Object value)
+  {
+    if(value instanceof Long)
+    {
+      return (Long) value;
+    }
+    if(isIntegral(value))
+    {
+      return ((Number) value).longValue();
+    }
+    CharSequence s = toCharSequence(value);
+    long result = parseLong(s, Long.MIN_VALUE, Long.MAX_VALUE);
+    if(result == INVALID && !isMinLong(s))
+    {
+      return null;
+    }
+    return result;
+  }
+
+  static Double toDouble(Object value)
+  {
+    if(value instanceof Double)
+    {
+      return (Double) value;
+    }
+    if(value instanceof Long || isIntegral(value))
+    {
+      return ((Number) value).doubleValue();
+    }
+    String s = String.valueOf(value);
+    return isDouble(s) ? Double.parseDouble(s) : null;
+  }
+
+  /**
+   * Float is not included, its decimal string is not the exact binary value.
+   */
+  private static boolean isIntegral(Object value)
+  {
+    return value instanceof Integer || value instanceof Short || value instanceof Byte;
+  }
+
+  private static CharSequence toCharSequence(Object value)
+  {
+    return value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+  }
+
+  private static boolean isMinLong(CharSequence s)
+  {
+    return "-9223372036854775808".contentEquals(s);
+  }
+
+  /**
+   * Same grammar as {@link Long#parseLong(String)}: optional sign followed by decimal digits.
+   */
+  private static long parseLong(CharSequence s, long min, long max)
+  {
+    int length = s.length();
+    if(length == 0)
+    {
+      return INVALID;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = s.charAt(0);
+    if(first == '-' || first == '+')
+    {
+      negative = first == '-';
+      i++;
+      if(length == 1)
+      {
+        return INVALID;
+      }
+    }
+    long limit = negative ? min : -max;
+    long multmin = limit / 10;
+    long result = 0;
+    for(; i < length; i++)
+    {
+      int digit = Character.digit(s.charAt(i), 10);
+      if(digit < 0 || result < multmin)
+      {
+        return INVALID;
+      }
+      result *= 10;
+      if(result < limit + digit)
+      {
+        return INVALID;
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Decimal subset of the {@link Double#parseDouble(String)} grammar: surrounding whitespace, sign, digits with an
+   * optional fraction and exponent, an optional type suffix, NaN and Infinity.
+   */
+  private static boolean isDouble(String s)
+  {
+    int end = s.length();
+    int i = 0;
+    while(i < end && s.charAt(i) <= ' ')
+    {
+      i++;
+    }
+    while(end > i && s.charAt(end - 1) <= ' ')
+    {
+      end--;
+    }
+    if(i < end && (s.charAt(i) == '-' || s.charAt(i) == '+'))
+    {
+      i++;
+    }
+    if(s.startsWith("NaN", i) && i + 3 == end || s.startsWith("Infinity", i) && i + 8 == end)
+    {
+      return true;
+    }
+    int digits = 0;
+    while(i < end && isDigit(s.charAt(i)))
+    {
+      i++;
+      digits++;
+    }
+    if(i < end && s.charAt(i) == '.')
+    {
+      i++;
+      while(i < end && isDigit(s.charAt(i)))
+      {
+        i++;
+        digits++;
+      }
+    }
+    if(digits == 0)
+    {
+      return false;
+    }
+    if(i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E'))
+    {
+      i++;
+      if(i < end && (s.charAt(i) == '-' || s.charAt(i) == '+'))
+      {
+        i++;
+      }
+      int exponent = 0;
+      while(i < end && isDigit(s.charAt(i)))
+      {
+        i++;
+        exponent++;
+      }
+      if(exponent == 0)
+      {
+        return false;
+      }
+    }
+    if(i < end && "fFdD".indexOf(s.charAt(i)) >= 0)
+    {
+      i++;
+    }
+    return i == end;
+  }
+
+  private static boolean isDigit(char c)
+  {
+    return c >= '0' && c <= '9';
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Typed column, usually a constant generated for a {@link QJEntity}. The expression <code>alias.name</code> and the
+ * number conversion of <code>andCompare</code> are resolved once when the column is created.
+ *
+ * @param <T> value type
+ * @author baso10
+ */
+public final class QJColumn<T>
+{
+
+  private final String alias;
+  private final String name;
+  private final String expression;
+  private final Class<T> type;
+  private final Class<?> numberType;
+
+  /**
+   * @param alias table alias, null for an unqualified column
+   * @param name column name
+   * @param type value type
+   */
+  public QJColumn(String alias, String name, Class<T> type)
+  {
+    if(name == null || type == null)
+    {
+      throw new IllegalArgumentException("Column name and type must not be null");
+    }
+    this.alias = alias;
+    this.name = name;
+    this.expression = alias == null ? name : alias + "." + name;
+    this.type = type;
+    this.numberType = WhereBuilder.numberType(type, null);
+  }
+
+  /**
+   * @param alias another table alias, e.g. for a self join
+   * @return the same column of the table with the given alias
+   */
+  public QJColumn<T> withAlias(String alias)
+  {
+    return new QJColumn<>(alias, name, type);
+  }
+
+  public String getAlias()
+  {
+    return alias;
+  }
+
+  public String getName()
+  {
+    return name;
+  }
+
+  /**
+   * @return <code>alias.name</code>, or the name without alias
+   */
+  public String getExpression()
+  {
+    return expression;
+  }
+
+  public Class<T> getType()
+  {
+    return type;
+  }
+
+  /**
+   * A number value can select another conversion than the column type, like in <code>andCompare</code>.
+   */
+  Class<?> numberType(Object value)
+  {
+    return value instanceof Number ? WhereBuilder.numberType(type, value) : numberType;
+  }
+
+  @Override
+  public String toString()
+  {
+    return expression;
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Open cursor behind {@link QueryExecutor#stream(WhereBuilder, RowMapper)}. Rows are mapped one at a time, the
+ * resources are released when the last row was read or the stream is closed, whichever happens first.
+ *
+ * @author baso10
+ */
+class QJCursor<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable
+{
+
+  private final Connection connection;
+  private final boolean autoCommit;
+  private final PreparedStatement statement;
+  private final ResultSet rs;
+  private final RowMapper<T> mapper;
+  private int rowNum;
+  private boolean closed;
+  private Exception failure;
+  private ObjLongConsumer<Exception> closeListener;
+
+  QJCursor(Connection connection, boolean autoCommit, PreparedStatement statement, ResultSet rs, RowMapper<T> mapper)
+  {
+    super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+    this.connection = connection;
+    this.autoCommit = autoCommit;
+    this.statement = statement;
+    this.rs = rs;
+    this.mapper = mapper;
+  }
+
+  /**
+   * @param closeListener called once after the resources were released with the failure, if any, and the number of
+   * rows read
+   */
+  void onClose(ObjLongConsumer<Exception> closeListener)
+  {
+    this.closeListener = closeListener;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action)
+  {
+    if(closed)
+    {
+      return false;
+    }
+    try
+    {
+      if(!rs.next())
+      {
+        close();
+        return false;
+      }
+      action.accept(mapper.mapRow(rs, rowNum++));
+      return true;
+    }
+    catch(SQLException e)
+    {
+      failure = e;
+      closeQuietly(e);
+      throw new QJUncheckedSQLException(e);
+    }
+    catch(RuntimeException e)
+    {
+      failure = e;
+      closeQuietly(e);
+      throw e;
+    }
+  }
+
+  private void closeQuietly(Exception cause)
+  {
+    try
+    {
+      close();
+    }
+    catch(QJUncheckedSQLException e)
+    {
+      cause.addSuppressed(e.getCause());
+    }
+  }
+
+  /**
+   * Ends the read-only transaction opened for the cursor and restores the auto commit mode before the connection is
+   * closed.
+   */
+  @Override
+  public void close()
+  {
+    if(closed)
+    {
+      return;
+    }
+    closed = true;
+    SQLException failure = null;
+    try
+    {
+      rs.close();
+    }
+    catch(SQLException e)
+    {
+      failure = e;
+    }
+    try
+    {
+      statement.close();
+    }
+    catch(SQLException e)
+    {
+      failure = suppress(failure, e);
+    }
+    try
+    {
+      if(autoCommit)
+      {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+    }
+    catch(SQLException e)
+    {
+      failure = suppress(failure, e);
+    }
+    try
+    {
+      connection.close();
+    }
+    catch(SQLException e)
+    {
+      failure = suppress(failure, e);
+    }
+    if(closeListener != null)
+    {
+      closeListener.accept(this.failure != null ? this.failure : failure, rowNum);
+    }
+    if(failure != null)
+    {
+      throw new QJUncheckedSQLException(failure);
+    }
+  }
+
+  private static SQLException suppress(SQLException failure, SQLException e)
+  {
+    if(failure == null)
+    {
+      return e;
+    }
+    failure.addSuppressed(e);
+    return failure;
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Database specific parts of the rendered SQL: paging, the condition of an empty IN list, array parameters, row value
+ * comparisons and the target of a DELETE. The default methods render the same SQL as {@link QJDialects#GENERIC}.
+ *
+ * Conditions are rendered when they are added, so set the dialect of a builder before adding conditions.
+ * {@link WhereBuilder#dialect(QJDialect)} throws once conditions exist.
+ *
+ * @author baso10
+ * @see QJDialects
+ */
+public interface QJDialect
+{
+
+  /**
+   * Called after <code>SELECT [DISTINCT] </code> for dialects limiting the rows in the select list.
+   *
+   * @param sb buffer
+   * @param limit limit, null if not set
+   * @param offset offset, null if not set or not positive
+   */
+  default void appendTop(StringBuilder sb, Integer limit, Integer offset)
+  {
+  }
+
+  /**
+   * Called after the ORDER BY clause.
+   *
+   * @param sb buffer
+   * @param limit limit, null if not set
+   * @param offset offset, null if not set or not positive
+   * @param ordered whether the query has an ORDER BY clause
+   */
+  default void appendPaging(StringBuilder sb, Integer limit, Integer offset, boolean ordered)
+  {
+    if(limit != null)
+    {
+      sb.append(" LIMIT ").append(limit);
+    }
+    if(offset != null)
+    {
+      if(limit == null)
+      {
+        sb.append(" LIMIT ").append(Integer.MAX_VALUE);
+      }
+      sb.append(" OFFSET ").append(offset);
+    }
+  }
+
+  /**
+   * Appends the start of a DELETE statement, <code>DELETE FROM table alias</code> by default.
+   *
+   * @param sb buffer
+   * @param table table
+   * @param alias alias, null if not set
+   */
+  default void appendDeleteFrom(StringBuilder sb, String table, String alias)
+  {
+    sb.append("DELETE FROM ").append(table);
+    if(alias != null)
+    {
+      sb.append(' ').append(alias);
+    }
+  }
+
+  /**
+   * @return condition matching no row, used for an empty IN list
+   */
+  default String getFalseCondition()
+  {
+    return "1 = 0";
+  }
+
+  /**
+   * @return true if a collection can be bound as one array parameter with <code>field = ANY(:p)</code>, otherwise
+   * long IN lists are expanded. Array parameters are bound with {@link java.sql.Connection#createArrayOf}, false by
+   * default as not every driver supports it.
+   */
+  default boolean supportsArrayParameters()
+  {
+    return false;
+  }
+
+  /**
+   * @return true if row values can be compared, e.g. <code>(a, b) &gt; (:p1, :p2)</code>
+   */
+  default boolean supportsRowValues()
+  {
+    return true;
+  }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Built-in {@link QJDialect} implementations and the default dialect of new builders.
+ *
+ * <ul>
+ * <li>{@link #GENERIC}: <code>LIMIT n OFFSET m</code> with <code>LIMIT 2147483647</code> for an offset without limit,
+ * no array parameters</li>
+ * <li>{@link #POSTGRESQL}: <code>LIMIT</code> and <code>OFFSET</code> each on their own, arrays and <code>FALSE</code></li>
+ * <li>{@link #MYSQL}: <code>LIMIT</code>, no array parameters, <code>DELETE alias FROM table alias</code></li>
+ * <li>{@link #ANSI}: <code>OFFSET m ROWS FETCH NEXT n ROWS ONLY</code> without arrays and row values, e.g. Oracle 12c
+ * and DB2</li>
+ * <li>{@link #H2}: like ANSI, with arrays and row values</li>
+ * <li>{@link #SQL_SERVER}: <code>TOP (n)</code> without offset, otherwise <code>OFFSET ... FETCH</code>, deletes like
+ * MySQL</li>
+ * </ul>
+ *
+ * @author baso10
+ */
+public final class QJDialects
+{
+
+  public static final QJDialect GENERIC = new Generic();
+  public static final QJDialect POSTGRESQL = new PostgreSql();
+  public static final QJDialect MYSQL = new MySql();
+  public static final QJDialect ANSI = new Ansi();
+  public static final QJDialect H2 = new H2();
+  public static final QJDialect SQL_SERVER = new SqlServer();
+
+  /**
+   * Row count MySQL documents for an offset without limit.
+   */
+  private static final String MYSQL_MAX_ROWS = "18446744073709551615";
+
+  private static volatile QJDialect defaultDialect = GENERIC;
+
+  private QJDialects()
+  {
+  }
+
+  /**
+   * @param dialect dialect of builders created from now on
+   */
+  public static void setDefault(QJDialect dialect)
+  {
+    if(dialect == null)
+    {
+      throw new IllegalArgumentException("dialect must not be null");
+    }
+    defaultDialect = dialect;
+  }
+
+  public static QJDialect getDefault()
+  {
+    return defaultDialect;
+  }
+
+  /**
+   * <code>DELETE alias FROM table alias</code>, the alias can not follow the table of a single table delete.
+   */
+  private static void appendDeleteAlias(StringBuilder sb, String table, String alias)
+  {
+    sb.append("DELETE ");
+    if(alias != null)
+    {
+      sb.append(alias).append(' ');
+    }
+    sb.append("FROM ").append(table);
+    if(alias != null)
+    {
+      sb.append(' ').append(alias);
+    }
+  }
+
+  private static final class Generic implements QJDialect
+  {
+
+    @Override
+    public String toString()
+    {
+      return "GENERIC";
+    }
+  }
+
+  private static final class PostgreSql implements QJDialect
+  {
+
+    @Override
+    public void appendPaging(StringBuilder sb, Integer limit, Integer offset, boolean ordered)
+    {
+      if(limit != null)
+      {
+        sb.append(" LIMIT ").append(limit);
+      }
+      if(offset != null)
+      {
+        sb.append(" OFFSET ").append(offset);
+      }
+    }
+
+    @Override
+    public String getFalseCondition()
+    {
+      return "FALSE";
+    }
+
+    @Override
+    public boolean supportsArrayParameters()
+    {
+      return true;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "POSTGRESQL";
+    }
+  }
+
+  private static final class MySql implements QJDialect
+  {
+
+    @Override
+    public void appendPaging(StringBuilder sb, Integer limit, Integer offset, boolean ordered)
+    {
+      if(limit != null)
+      {
+        sb.append(" LIMIT ").append(limit);
+      }
+      if(offset != null)
+      {
+        if(limit == null)
+        {
+          sb.append(" LIMIT ").append(MYSQL_MAX_ROWS);
+        }
+        sb.append(" OFFSET ").append(offset);
+      }
+    }
+
+    @Override
+    public String getFalseCondition()
+    {
+      return "FALSE";
+    }
+
+    @Override
+    public void appendDeleteFrom(StringBuilder sb, String table, String alias)
+    {
+      appendDeleteAlias(sb, table, alias);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "MYSQL";
+    }
+  }
+
+  private static class Ansi implements QJDialect
+  {
+
+    @Override
+    public void appendPaging(StringBuilder sb, Integer limit, Integer offset, boolean ordered)
+    {
+      if(offset != null)
+      {
+        sb.append(" OFFSET ").append(offset).append(" ROWS");
+      }
+      if(limit != null)
+      {
+        sb.append(offset == null ? " FETCH FIRST " : " FETCH NEXT ").append(limit).append(" ROWS ONLY");
+      }
+    }
+
+    @Override
+    public boolean supportsRowValues()
+    {
+      return false;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "ANSI";
+    }
+  }
+
+  private static final class H2 extends Ansi
+  {
+
+    @Override
+    public String getFalseCondition()
+    {
+      return "FALSE";
+    }
+
+    @Override
+    public boolean supportsArrayParameters()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean supportsRowValues()
+    {
+      return true;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "H2";
+    }
+  }
+
+  private static final class SqlServer implements QJDialect
+  {
+
+    @Override
+    public void appendTop(StringBuilder sb, Integer limit, Integer offset)
+    {
+      if(limit != null && offset == null)
+      {
+        sb.append("TOP (").append(limit).append(") ");
+      }
+    }
+
+    /**
+     * OFFSET requires an ORDER BY, <code>ORDER BY (SELECT NULL)</code> is added to unordered queries.
+     */
+    @Override
+    public void appendPaging(StringBuilder sb, Integer limit, Integer offset, boolean ordered)
+    {
+      if(offset == null)
+      {
+        return;
+      }
+      if(!ordered)
+      {
+        sb.append(" ORDER BY (SELECT NULL)");
+      }
+      sb.append(" OFFSET ").append(offset).append(" ROWS");
+      if(limit != null)
+      {
+        sb.append(" FETCH NEXT ").append(limit).append(" ROWS ONLY");
+      }
+    }
+
+    @Override
+    public boolean supportsRowValues()
+    {
+      return false;
+    }
+
+    @Override
+    public void appendDeleteFrom(StringBuilder sb, String table, String alias)
+    {
+      appendDeleteAlias(sb, table, alias);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "SQL_SERVER";
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class mapped to a table. The annotation processor <code>ch.baso10.queryj.processor.QJMetamodelProcessor</code>
+ * generates a class <code>Q&lt;SimpleName&gt;</code> in the same package with the table name, the alias and a
+ * {@link QJColumn} constant for every non-static, non-transient field, including the fields of superclasses.
+ *
+ * @author baso10
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface QJEntity
+{
+
+  /**
+   * @return table name, the simple class name if empty
+   */
+  String table() default "";
+
+  /**
+   * @return table alias used in the column expressions
+   */
+  String alias() default "t";
+
+}
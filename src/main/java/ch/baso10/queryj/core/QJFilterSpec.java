@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of the fields a search form can filter on, applied with
+ * {@link WhereBuilder#andCompareAll(QJFilterSpec, Map)}.
+ *
+ * Column expression, number conversion and allowed operators are resolved once at registration, so applying a form
+ * costs one lookup per key before the values are parsed and bound like <code>andCompare</code>. Predicates are added in
+ * registration order, the order of the map does not change the SQL. Keys that are neither registered nor ignored are
+ * rejected. Register all fields before sharing a spec between threads, e.g. in a static initializer.
+ *
+ * <pre>
+ * static final QJFilterSpec ORDERS = new QJFilterSpec()
+ *         .field("customer", "c", "name", String.class)
+ *         .field("amount", "o", "amount", Double.class, QJOperator.GE, QJOperator.LE)
+ *         .ignore("page", "sort");
+ * </pre>
+ *
+ * @author baso10
+ */
+public class QJFilterSpec
+{
+
+  private final Map<String, Field> fields = new HashMap<>();
+  private final List<Field> ordered = new ArrayList<>();
+  private final Set<String> ignored = new HashSet<>();
+
+  /**
+   * Registers a field accepting all operator prefixes.
+   *
+   * @param key form key
+   * @param column column expression
+   * @param type value type like the <code>classType</code> of <code>andCompare</code>
+   * @return this
+   */
+  public QJFilterSpec field(String key, String column, Class<?> type)
+  {
+    return register(key, new QJColumn<>(null, column, type), null);
+  }
+
+  /**
+   * Registers a field accepting all operator prefixes.
+   *
+   * @param key form key
+   * @param tableAlias table alias, may be null
+   * @param column column
+   * @param type value type like the <code>classType</code> of <code>andCompare</code>
+   * @return this
+   */
+  public QJFilterSpec field(String key, String tableAlias, String column, Class<?> type)
+  {
+    return register(key, new QJColumn<>(tableAlias, column, type), null);
+  }
+
+  /**
+   * Registers a field accepting all operator prefixes.
+   *
+   * @param key form key
+   * @param column column
+   * @return this
+   */
+  public QJFilterSpec field(String key, QJColumn<?> column)
+  {
+    return register(key, column, null);
+  }
+
+  /**
+   * Registers a field accepting only the given operator prefixes. Values with another prefix are passed to the
+   * invalid value handler of the builder and skipped.
+   *
+   * @param key form key
+   * @param tableAlias table alias, may be null
+   * @param column column
+   * @param type value type like the <code>classType</code> of <code>andCompare</code>
+   * @param operators allowed operator prefixes, none to allow plain values only
+   * @return this
+   */
+  public QJFilterSpec field(String key, String tableAlias, String column, Class<?> type, QJOperator... operators)
+  {
+    return field(key, new QJColumn<>(tableAlias, column, type), operators);
+  }
+
+  /**
+   * Registers a field accepting only the given operator prefixes.
+   *
+   * @param key form key
+   * @param column column
+   * @param operators allowed operator prefixes, none to allow plain values only
+   * @return this
+   * @see #field(String, String, String, Class, QJOperator...)
+   */
+  public QJFilterSpec field(String key, QJColumn<?> column, QJOperator... operators)
+  {
+    Set<QJOperator> allowed = EnumSet.noneOf(QJOperator.class);
+    allowed.addAll(Arrays.asList(operators));
+    return register(key, column, allowed);
+  }
+
+  /**
+   * @param keys form keys that are accepted but not filtered on, e.g. paging parameters
+   * @return this
+   */
+  public QJFilterSpec ignore(String... keys)
+  {
+    for(String key : keys)
+    {
+      if(fields.containsKey(key))
+      {
+        throw new IllegalArgumentException("Filter field already registered: " + key);
+      }
+      ignored.add(key);
+    }
+    return this;
+  }
+
+  private QJFilterSpec register(String key, QJColumn<?> column, Set<QJOperator> operators)
+  {
+    if(fields.containsKey(key) || ignored.contains(key))
+    {
+      throw new IllegalArgumentException("Filter field already registered: " + key);
+    }
+    Field field = new Field(ordered.size(), column, operators);
+    fields.put(key, field);
+    ordered.add(field);
+    return this;
+  }
+
+  /**
+   * @return registered field keys
+   */
+  public Set<String> getKeys()
+  {
+    return Collections.unmodifiableSet(fields.keySet());
+  }
+
+  void apply(WhereBuilder<?> builder, Map<String, ?> values)
+  {
+    if(values == null || values.isEmpty())
+    {
+      return;
+    }
+    Object[] slots = new Object[ordered.size()];
+    for(Map.Entry<String, ?> entry : values.entrySet())
+    {
+      Field field = fields.get(entry.getKey());
+      if(field != null)
+      {
+        slots[field.index] = entry.getValue();
+      }
+      else if(!ignored.contains(entry.getKey()))
+      {
+        throw new IllegalArgumentException("Unknown filter field: " + entry.getKey());
+      }
+    }
+    for(int i = 0; i < slots.length; i++)
+    {
+      if(slots[i] != null)
+      {
+        ordered.get(i).apply(builder, slots[i]);
+      }
+    }
+  }
+
+  private static final class Field
+  {
+
+    private final int index;
+    private final QJColumn<?> column;
+    private final Set<QJOperator> operators;
+
+    private Field(int index, QJColumn<?> column, Set<QJOperator> operators)
+    {
+      this.index = index;
+      this.column = column;
+      this.operators = operators;
+    }
+
+    private void apply(WhereBuilder<?> builder, Object value)
+    {
+      builder.compare(column.getExpression(), value, column.getType(), column.numberType(value), operators);
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Global {@link QJListener} for rendering and for executors without their own listener. Without a listener the
+ * instrumentation costs one volatile read per render or execution.
+ *
+ * @author baso10
+ */
+public final class QJInstrumentation
+{
+
+  private static volatile QJListener listener;
+
+  private QJInstrumentation()
+  {
+  }
+
+  /**
+   * @param listener global listener, null to disable
+   */
+  public static void setListener(QJListener listener)
+  {
+    QJInstrumentation.listener = listener;
+  }
+
+  public static QJListener getListener()
+  {
+    return listener;
+  }
+
+}
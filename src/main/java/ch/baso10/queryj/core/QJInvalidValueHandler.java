@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Called when an <code>andCompare</code> value can not be converted to the requested type. The predicate is skipped.
+ *
+ * @author baso10
+ */
+@FunctionalInterface
+public interface QJInvalidValueHandler
+{
+
+  QJInvalidValueHandler IGNORE = (field, value, type) ->
+  {
+  };
+
+  void invalidValue(String field, Object value, Class<?> type);
+
+}
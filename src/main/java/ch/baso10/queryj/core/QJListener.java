@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Instrumentation callbacks of the builders and {@link QueryExecutor}. Statements are identified by the fingerprint of
+ * their positional SQL, see {@link QJPositionalSql#getFingerprint()}. Callbacks run on the calling thread and must be
+ * cheap and must not throw.
+ *
+ * @author baso10
+ * @see QJInstrumentation
+ * @see QJMetrics
+ */
+public interface QJListener
+{
+
+  /**
+   * Called when {@link WhereBuilder#getSql()} rendered the SQL, memoized calls are not reported.
+   *
+   * @param fingerprint statement shape
+   * @param sql SQL with <code>:name</code> placeholders
+   * @param nanos render time
+   * @param paramCount number of bound parameters
+   */
+  default void rendered(String fingerprint, String sql, long nanos, int paramCount)
+  {
+  }
+
+  /**
+   * @param fingerprint statement shape
+   * @param sql SQL with <code>:name</code> placeholders
+   * @param params values in <code>?</code> order, null for a batch
+   * @param nanos latency including connection acquisition and row mapping, for streams up to the first fetch
+   * @param rows rows fetched or updated
+   */
+  default void executed(String fingerprint, String sql, Object[] params, long nanos, long rows)
+  {
+  }
+
+  /**
+   * @param fingerprint statement shape
+   * @param sql SQL with <code>:name</code> placeholders
+   * @param params values in <code>?</code> order, null for a batch
+   * @param nanos time until the failure
+   * @param failure failure
+   */
+  default void failed(String fingerprint, String sql, Object[] params, long nanos, Exception failure)
+  {
+  }
+
+  /**
+   * @param listeners listeners called in order
+   * @return listener forwarding every callback to all listeners
+   */
+  static QJListener compose(QJListener... listeners)
+  {
+    List<QJListener> list = Arrays.asList(listeners.clone());
+    return new QJListener()
+    {
+      @Override
+      public void rendered(String fingerprint, String sql, long nanos, int paramCount)
+      {
+        for(QJListener listener : list)
+        {
+          listener.rendered(fingerprint, sql, nanos, paramCount);
+        }
+      }
+
+      @Override
+      public void executed(String fingerprint, String sql, Object[] params, long nanos, long rows)
+      {
+        for(QJListener listener : list)
+        {
+          listener.executed(fingerprint, sql, params, nanos, rows);
+        }
+      }
+
+      @Override
+      public void failed(String fingerprint, String sql, Object[] params, long nanos, Exception failure)
+      {
+        for(QJListener listener : list)
+        {
+          listener.failed(fingerprint, sql, params, nanos, failure);
+        }
+      }
+    };
+  }
+
+}
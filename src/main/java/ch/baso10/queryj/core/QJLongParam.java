@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Parameter holding a primitive <code>long</code>, boxed only when {@link #getValue()} is called.
+ *
+ * @author baso10
+ */
+public class QJLongParam extends QJParam
+{
+
+  private final long value;
+
+  public QJLongParam(String name, long value)
+  {
+    super(name, null);
+    this.value = value;
+  }
+
+  public long getLong()
+  {
+    return value;
+  }
+
+  @Override
+  public Object getValue()
+  {
+    return Long.valueOf(value);
+  }
+
+  @Override
+  public void bind(PreparedStatement statement, int index) throws SQLException
+  {
+    statement.setLong(index, value);
+  }
+
+}
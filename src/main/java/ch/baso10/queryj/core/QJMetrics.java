@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default {@link QJListener} collecting per statement shape counters and latency histograms in memory.
+ *
+ * <pre>
+ * QJMetrics metrics = new QJMetrics();
+ * QJInstrumentation.setListener(metrics);
+ * ...
+ * System.out.println(metrics.dump());
+ * </pre>
+ *
+ * Counters are striped {@link LongAdder}s, recording never blocks. At most <code>maxShapes</code> shapes are tracked,
+ * further shapes are counted under {@link #OTHER}.
+ *
+ * @author baso10
+ */
+public class QJMetrics implements QJListener
+{
+
+  public static final String OTHER = "other";
+
+  private final int maxShapes;
+  private final Map<String, Stats> shapes = new ConcurrentHashMap<>();
+
+  public QJMetrics()
+  {
+    this(1000);
+  }
+
+  public QJMetrics(int maxShapes)
+  {
+    if(maxShapes <= 0)
+    {
+      throw new IllegalArgumentException("maxShapes must be positive: " + maxShapes);
+    }
+    this.maxShapes = maxShapes;
+  }
+
+  @Override
+  public void rendered(String fingerprint, String sql, long nanos, int paramCount)
+  {
+    Stats stats = stats(fingerprint, sql);
+    stats.renders.increment();
+    stats.renderNanos.add(nanos);
+  }
+
+  @Override
+  public void executed(String fingerprint, String sql, Object[] params, long nanos, long rows)
+  {
+    Stats stats = stats(fingerprint, sql);
+    stats.executions.increment();
+    stats.rows.add(rows);
+    if(params != null)
+    {
+      stats.binds.add(params.length);
+    }
+    stats.latency.record(nanos);
+  }
+
+  @Override
+  public void failed(String fingerprint, String sql, Object[] params, long nanos, Exception failure)
+  {
+    Stats stats = stats(fingerprint, sql);
+    stats.errors.increment();
+    stats.latency.record(nanos);
+  }
+
+  private Stats stats(String fingerprint, String sql)
+  {
+    Stats stats = shapes.get(fingerprint);
+    if(stats != null)
+    {
+      return stats;
+    }
+    if(shapes.size() >= maxShapes)
+    {
+      return shapes.computeIfAbsent(OTHER, key -> new Stats(key, null));
+    }
+    return shapes.computeIfAbsent(fingerprint, key -> new Stats(key, sql));
+  }
+
+  /**
+   * @param fingerprint statement shape
+   * @return statistics of the shape, null if it was not seen
+   */
+  public Stats getStats(String fingerprint)
+  {
+    return shapes.get(fingerprint);
+  }
+
+  /**
+   * @return statistics of all shapes, by fingerprint
+   */
+  public Map<String, Stats> getAll()
+  {
+    return Collections.unmodifiableMap(shapes);
+  }
+
+  public void reset()
+  {
+    shapes.clear();
+  }
+
+  /**
+   * @return one line per shape, ordered by total execution time
+   */
+  public String dump()
+  {
+    List<Stats> list = new ArrayList<>(shapes.values());
+    list.sort((a, b) -> Double.compare(b.getTotalMillis(), a.getTotalMillis()));
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format(Locale.ROOT, "%-16s %10s %8s %12s %10s %10s %10s  %s%n", "shape", "count", "errors", "rows", "p50 ms", "p99 ms", "max ms", "sql"));
+    for(Stats stats : list)
+    {
+      QJHistogram latency = stats.getLatency();
+      sb.append(String.format(Locale.ROOT, "%-16s %10d %8d %12d %10.3f %10.3f %10.3f  %s%n", stats.getFingerprint(), stats.getExecutions(),
+              stats.getErrors(), stats.getRows(), millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+              millis(latency.getMax()), stats.getSql() == null ? "" : stats.getSql()));
+    }
+    return sb.toString();
+  }
+
+  private static double millis(long nanos)
+  {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Counters of one statement shape.
+   */
+  public static final class Stats
+  {
+
+    private final String fingerprint;
+    private final String sql;
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder binds = new LongAdder();
+    private final QJHistogram latency = new QJHistogram();
+
+    Stats(String fingerprint, String sql)
+    {
+      this.fingerprint = fingerprint;
+      this.sql = sql;
+    }
+
+    public String getFingerprint()
+    {
+      return fingerprint;
+    }
+
+    /**
+     * @return SQL of the first statement seen with this shape
+     */
+    public String getSql()
+    {
+      return sql;
+    }
+
+    public long getRenders()
+    {
+      return renders.sum();
+    }
+
+    public long getRenderNanos()
+    {
+      return renderNanos.sum();
+    }
+
+    public long getExecutions()
+    {
+      return executions.sum();
+    }
+
+    public long getErrors()
+    {
+      return errors.sum();
+    }
+
+    public long getRows()
+    {
+      return rows.sum();
+    }
+
+    public long getBinds()
+    {
+      return binds.sum();
+    }
+
+    /**
+     * @return latency of executions and failures in nanoseconds
+     */
+    public QJHistogram getLatency()
+    {
+      return latency;
+    }
+
+    double getTotalMillis()
+    {
+      return millis((long) (latency.getMean() * latency.getCount()));
+    }
+
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Comparison operators recognized as prefix of <code>andCompare</code> values, e.g. <code>"&gt;=10"</code>.
+ *
+ * @author baso10
+ */
+public enum QJOperator
+{
+
+  EQ("="),
+  NE("<>"),
+  GT(">"),
+  GE(">="),
+  LT("<"),
+  LE("<=");
+
+  private final String symbol;
+
+  QJOperator(String symbol)
+  {
+    this.symbol = symbol;
+  }
+
+  public String getSymbol()
+  {
+    return symbol;
+  }
+
+  /**
+   * @param value compare value
+   * @return the operator the value starts with, null if none
+   */
+  public static QJOperator scan(CharSequence value)
+  {
+    if(value.length() == 0)
+    {
+      return null;
+    }
+    char next = value.length() > 1 ? value.charAt(1) : 0;
+    switch(value.charAt(0))
+    {
+      case '=':
+        return EQ;
+      case '<':
+        return next == '>' ? NE : next == '=' ? LE : LT;
+      case '>':
+        return next == '=' ? GE : GT;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @param symbol operator symbol
+   * @return the operator, null if the symbol is unknown
+   */
+  public static QJOperator of(String symbol)
+  {
+    QJOperator operator = scan(symbol);
+    return operator != null && operator.symbol.length() == symbol.length() ? operator : null;
+  }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.List;
+
+/**
+ * One page of rows together with the total number of rows of the unpaged query.
+ *
+ * @param <T> row type
+ * @author baso10
+ */
+public class QJPage<T>
+{
+
+  private final List<T> rows;
+  private final long total;
+
+  public QJPage(List<T> rows, long total)
+  {
+    this.rows = rows;
+    this.total = total;
+  }
+
+  public List<T> getRows()
+  {
+    return rows;
+  }
+
+  public long getTotal()
+  {
+    return total;
+  }
+
+}
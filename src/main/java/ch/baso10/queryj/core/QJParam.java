@@ -15,6 +15,16 @@
  */
 package ch.baso10.queryj.core;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
 /**
  *
  * @author baso10
@@ -22,6 +32,25 @@ package ch.baso10.queryj.core;
 public class QJParam
 {
 
+  private static final Map<Class<?>, String> ARRAY_TYPES = new HashMap<>();
+
+  static
+  {
+    ARRAY_TYPES.put(Integer.class, "integer");
+    ARRAY_TYPES.put(Long.class, "bigint");
+    ARRAY_TYPES.put(Short.class, "smallint");
+    ARRAY_TYPES.put(Double.class, "float8");
+    ARRAY_TYPES.put(Float.class, "float4");
+    ARRAY_TYPES.put(BigDecimal.class, "numeric");
+    ARRAY_TYPES.put(Boolean.class, "boolean");
+    ARRAY_TYPES.put(String.class, "varchar");
+    ARRAY_TYPES.put(UUID.class, "uuid");
+    ARRAY_TYPES.put(java.sql.Date.class, "date");
+    ARRAY_TYPES.put(LocalDate.class, "date");
+    ARRAY_TYPES.put(Timestamp.class, "timestamp");
+    ARRAY_TYPES.put(LocalDateTime.class, "timestamp");
+  }
+
   private final String name;
   private final Object value;
 
@@ -46,4 +75,52 @@ public class QJParam
     return value;
   }
 
+  /**
+   * @param statement prepared statement
+   * @param index one based parameter index
+   * @throws SQLException if the value can not be set
+   */
+  public void bind(PreparedStatement statement, int index) throws SQLException
+  {
+    setObject(statement, index, getValue());
+  }
+
+  /**
+   * Sets a value, <code>Object[]</code> values of array parameters are converted with
+   * {@link java.sql.Connection#createArrayOf(String, Object[])}.
+   *
+   * @param statement prepared statement
+   * @param index one based parameter index
+   * @param value value
+   * @throws SQLException if the value can not be set
+   */
+  static void setObject(PreparedStatement statement, int index, Object value) throws SQLException
+  {
+    String typeName = value instanceof Object[] ? arrayTypeName((Object[]) value) : null;
+    if(typeName != null)
+    {
+      statement.setArray(index, statement.getConnection().createArrayOf(typeName, (Object[]) value));
+    }
+    else
+    {
+      statement.setObject(index, value);
+    }
+  }
+
+  /**
+   * @param values array values
+   * @return SQL type name of the first non null value, null if unknown
+   */
+  static String arrayTypeName(Object[] values)
+  {
+    for(Object value : values)
+    {
+      if(value != null)
+      {
+        return ARRAY_TYPES.get(value.getClass());
+      }
+    }
+    return null;
+  }
+
 }
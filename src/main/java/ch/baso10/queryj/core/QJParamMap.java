@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only parameter map backed by parallel name and value arrays.
+ *
+ * @author baso10
+ */
+class QJParamMap extends AbstractMap<String, Object>
+{
+
+  private final String[] names;
+  private final Object[] values;
+  private final Map<String, Integer> index;
+
+  /**
+   * @param names parameter names, must not contain duplicates
+   * @param values values in the same order as names
+   * @param index optional name to position lookup shared between maps of the same shape, linear scan if null
+   */
+  QJParamMap(String[] names, Object[] values, Map<String, Integer> index)
+  {
+    this.names = names;
+    this.values = values;
+    this.index = index;
+  }
+
+  private int indexOf(Object key)
+  {
+    if(index != null)
+    {
+      Integer i = index.get(key);
+      return i == null ? -1 : i;
+    }
+    for(int i = 0; i < names.length; i++)
+    {
+      if(names[i].equals(key))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public Object get(Object key)
+  {
+    int i = indexOf(key);
+    return i < 0 ? null : values[i];
+  }
+
+  @Override
+  public boolean containsKey(Object key)
+  {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size()
+  {
+    return names.length;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet()
+  {
+    return new AbstractSet<Entry<String, Object>>()
+    {
+      @Override
+      public Iterator<Entry<String, Object>> iterator()
+      {
+        return new Iterator<Entry<String, Object>>()
+        {
+          private int i;
+
+          @Override
+          public boolean hasNext()
+          {
+            return i < names.length;
+          }
+
+          @Override
+          public Entry<String, Object> next()
+          {
+            if(i >= names.length)
+            {
+              throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = new SimpleImmutableEntry<>(names[i], values[i]);
+            i++;
+            return entry;
+          }
+        };
+      }
+
+      @Override
+      public int size()
+      {
+        return names.length;
+      }
+    };
+  }
+
+}
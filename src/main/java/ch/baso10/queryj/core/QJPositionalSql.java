@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SQL with <code>:name</code> placeholders translated to JDBC <code>?</code> placeholders.
+ *
+ * A name used more than once gets one <code>?</code> per occurrence. Quoted literals, quoted identifiers, comments
+ * and <code>::</code> casts are left untouched. Translations are cached per SQL text, use {@link #parse(String)}.
+ * Builders and compiled queries keep their translation, so the shared cache is only consulted once per render. The
+ * cache is lock free and bounded, when it is full an arbitrary entry is evicted. SQL longer than
+ * {@link #MAX_CACHED_LENGTH} characters, e.g. multi-row INSERT chunks, is translated without being cached.
+ *
+ * @author baso10
+ */
+public class QJPositionalSql
+{
+
+  public static final int MAX_CACHED_LENGTH = 16 * 1024;
+
+  private static final int CACHE_SIZE = 1024;
+  private static final Map<String, QJPositionalSql> CACHE = new ConcurrentHashMap<>(64);
+
+  private final String namedSql;
+  private final String sql;
+  private final String[] slots;
+  private final Map<String, int[]> indexes;
+  private final String fingerprint;
+
+  private QJPositionalSql(String namedSql, String sql, String[] slots)
+  {
+    this.namedSql = namedSql;
+    this.sql = sql;
+    this.slots = slots;
+    this.fingerprint = fingerprint(sql);
+    Map<String, List<Integer>> positions = new LinkedHashMap<>();
+    for(int i = 0; i < slots.length; i++)
+    {
+      positions.computeIfAbsent(slots[i], name -> new ArrayList<>()).add(i);
+    }
+    Map<String, int[]> indexes = new HashMap<>();
+    for(Map.Entry<String, List<Integer>> entry : positions.entrySet())
+    {
+      indexes.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+    this.indexes = Collections.unmodifiableMap(indexes);
+  }
+
+  /**
+   * @param namedSql SQL with <code>:name</code> placeholders
+   * @return cached translation
+   */
+  public static QJPositionalSql parse(String namedSql)
+  {
+    if(namedSql.length() > MAX_CACHED_LENGTH)
+    {
+      return translate(namedSql);
+    }
+    QJPositionalSql positional = CACHE.get(namedSql);
+    if(positional == null)
+    {
+      positional = translate(namedSql);
+      if(CACHE.size() >= CACHE_SIZE)
+      {
+        evictOne();
+      }
+      CACHE.put(namedSql, positional);
+    }
+    return positional;
+  }
+
+  private static void evictOne()
+  {
+    Iterator<String> it = CACHE.keySet().iterator();
+    if(it.hasNext())
+    {
+      CACHE.remove(it.next());
+    }
+  }
+
+  static int cacheSize()
+  {
+    return CACHE.size();
+  }
+
+  private static QJPositionalSql translate(String namedSql)
+  {
+    StringBuilder sb = new StringBuilder(namedSql.length());
+    List<String> slots = new ArrayList<>();
+    int length = namedSql.length();
+    int i = 0;
+    while(i < length)
+    {
+      char c = namedSql.charAt(i);
+      if(c == '\'' || c == '"')
+      {
+        int end = namedSql.indexOf(c, i + 1);
+        end = end < 0 ? length : end + 1;
+        sb.append(namedSql, i, end);
+        i = end;
+      }
+      else if(c == '-' && i + 1 < length && namedSql.charAt(i + 1) == '-')
+      {
+        int end = namedSql.indexOf('\n', i);
+        end = end < 0 ? length : end + 1;
+        sb.append(namedSql, i, end);
+        i = end;
+      }
+      else if(c == '/' && i + 1 < length && namedSql.charAt(i + 1) == '*')
+      {
+        int end = namedSql.indexOf("*/", i + 2);
+        end = end < 0 ? length : end + 2;
+        sb.append(namedSql, i, end);
+        i = end;
+      }
+      else if(c == ':' && i + 1 < length && namedSql.charAt(i + 1) == ':')
+      {
+        sb.append("::");
+        i += 2;
+      }
+      else if(c == ':' && i + 1 < length && Character.isJavaIdentifierStart(namedSql.charAt(i + 1)))
+      {
+        int end = i + 2;
+        while(end < length && Character.isJavaIdentifierPart(namedSql.charAt(end)))
+        {
+          end++;
+        }
+        slots.add(namedSql.substring(i + 1, end));
+        sb.append('?');
+        i = end;
+      }
+      else
+      {
+        sb.append(c);
+        i++;
+      }
+    }
+    return new QJPositionalSql(namedSql, sb.toString(), slots.toArray(new String[0]));
+  }
+
+  /**
+   * @return the translated SQL with <code>:name</code> placeholders
+   */
+  public String getNamedSql()
+  {
+    return namedSql;
+  }
+
+  /**
+   * @return SQL with <code>?</code> placeholders
+   */
+  public String getSql()
+  {
+    return sql;
+  }
+
+  /**
+   * Statements that only differ in parameter names or values have the same fingerprint, it is stable across JVMs.
+   *
+   * @return 16 hex digits of the 64 bit FNV-1a hash of the positional SQL
+   */
+  public String getFingerprint()
+  {
+    return fingerprint;
+  }
+
+  private static String fingerprint(String sql)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for(int i = 0; i < sql.length(); i++)
+    {
+      hash ^= sql.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    String hex = Long.toHexString(hash);
+    return "0000000000000000".substring(hex.length()) + hex;
+  }
+
+  public int getSlotCount()
+  {
+    return slots.length;
+  }
+
+  /**
+   * @param slot zero based <code>?</code> position
+   * @return parameter name bound to the slot
+   */
+  public String getSlotName(int slot)
+  {
+    return slots[slot];
+  }
+
+  /**
+   * @param name parameter name
+   * @return zero based <code>?</code> positions of the name, empty if the name is not used
+   */
+  public int[] getIndexes(String name)
+  {
+    int[] positions = indexes.get(name);
+    return positions == null ? new int[0] : positions.clone();
+  }
+
+  /**
+   * @param params values by parameter name, with or without leading colon
+   * @return values in <code>?</code> order
+   */
+  public Object[] bind(Map<String, ?> params)
+  {
+    Object[] values = new Object[slots.length];
+    for(int i = 0; i < slots.length; i++)
+    {
+      String name = slots[i];
+      if(!params.containsKey(name))
+      {
+        name = ":" + name;
+        if(!params.containsKey(name))
+        {
+          throw new IllegalArgumentException("No value for parameter: " + slots[i]);
+        }
+      }
+      values[i] = params.get(name);
+    }
+    return values;
+  }
+
+  /**
+   * Sets the values on a statement prepared from {@link #getSql()}, <code>Object[]</code> values are bound as SQL arrays.
+   *
+   * @param statement prepared statement
+   * @param values values in <code>?</code> order
+   * @throws SQLException if a value can not be set
+   */
+  public static void setParameters(PreparedStatement statement, Object[] values) throws SQLException
+  {
+    for(int i = 0; i < values.length; i++)
+    {
+      QJParam.setObject(statement, i + 1, values[i]);
+    }
+  }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU cache of query results for {@link QueryExecutor#queryCached(WhereBuilder, RowMapper)}, keyed by the
+ * positional SQL, the parameter values and the row mapper.
+ *
+ * Every entry is tagged with the tables of the query. Each table has a version that is incremented by
+ * {@link #invalidate(String...)}, the executor does this after every UPDATE, DELETE, INSERT or batch it runs. An entry
+ * is only served while the versions of all its tables are unchanged since the query was started, so a result loaded
+ * concurrently with a mutation is never served. Writes that bypass the library must call {@link #invalidate(String...)}
+ * themselves.
+ *
+ * Row mappers are compared by identity, use constants or method references such as <code>Item::fromRow</code>.
+ * Cached lists are read-only and shared, the mapped rows should be immutable.
+ *
+ * @author baso10
+ */
+public class QJResultCache
+{
+
+  private final int maxEntries;
+  private long maxWeight = Long.MAX_VALUE;
+  private long ttlNanos = Long.MAX_VALUE;
+  private final LongSupplier clock;
+  private final Map<Key, Entry> cache;
+  private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+  private long weight;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public QJResultCache(int maxEntries)
+  {
+    this(maxEntries, System::nanoTime);
+  }
+
+  QJResultCache(int maxEntries, LongSupplier clock)
+  {
+    if(maxEntries <= 0)
+    {
+      throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    this.clock = clock;
+    this.cache = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true);
+  }
+
+  /**
+   * @param ttl time to live after the query was executed
+   * @param unit unit
+   * @return this
+   */
+  public QJResultCache ttl(long ttl, TimeUnit unit)
+  {
+    if(ttl <= 0)
+    {
+      throw new IllegalArgumentException("ttl must be positive: " + ttl);
+    }
+    this.ttlNanos = unit.toNanos(ttl);
+    return this;
+  }
+
+  /**
+   * @param maxWeight largest total number of cached rows, results with more rows are not cached
+   * @return this
+   */
+  public QJResultCache maxWeight(long maxWeight)
+  {
+    if(maxWeight <= 0)
+    {
+      throw new IllegalArgumentException("maxWeight must be positive: " + maxWeight);
+    }
+    this.maxWeight = maxWeight;
+    return this;
+  }
+
+  /**
+   * Marks all cached results reading one of the tables as stale.
+   *
+   * @param tables table names, case insensitive
+   */
+  public void invalidate(String... tables)
+  {
+    invalidate(Arrays.asList(tables));
+  }
+
+  public void invalidate(Collection<String> tables)
+  {
+    for(String table : tables)
+    {
+      versions.computeIfAbsent(tag(table), t -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  public void invalidateAll()
+  {
+    synchronized(cache)
+    {
+      cache.clear();
+      weight = 0;
+    }
+  }
+
+  /**
+   * @return the cached rows, null on a miss
+   */
+  @SuppressWarnings("unchecked")
+  <T> List<T> get(Key key)
+  {
+    synchronized(cache)
+    {
+      Entry entry = cache.get(key);
+      if(entry != null)
+      {
+        if(clock.getAsLong() - entry.loaded < ttlNanos && entry.isCurrent(this))
+        {
+          hits.increment();
+          return (List<T>) entry.rows;
+        }
+        remove(key, entry);
+      }
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * @return versions of the tables, taken before the query is executed
+   */
+  long[] snapshot(String[] tables)
+  {
+    long[] snapshot = new long[tables.length];
+    for(int i = 0; i < tables.length; i++)
+    {
+      snapshot[i] = version(tables[i]);
+    }
+    return snapshot;
+  }
+
+  <T> List<T> put(Key key, String[] tables, long[] snapshot, long loaded, List<T> rows)
+  {
+    List<T> result = Collections.unmodifiableList(new ArrayList<>(rows));
+    if(rows.size() > maxWeight)
+    {
+      return result;
+    }
+    Entry entry = new Entry(result, tables, snapshot, loaded);
+    if(!entry.isCurrent(this))
+    {
+      return result;
+    }
+    synchronized(cache)
+    {
+      Entry previous = cache.put(key, entry);
+      if(previous != null)
+      {
+        weight -= previous.rows.size();
+      }
+      weight += rows.size();
+      Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator();
+      while((cache.size() > maxEntries || weight > maxWeight) && it.hasNext())
+      {
+        Map.Entry<Key, Entry> eldest = it.next();
+        it.remove();
+        weight -= eldest.getValue().rows.size();
+        evictions.increment();
+      }
+    }
+    return result;
+  }
+
+  private void remove(Key key, Entry entry)
+  {
+    cache.remove(key);
+    weight -= entry.rows.size();
+  }
+
+  long now()
+  {
+    return clock.getAsLong();
+  }
+
+  private long version(String tag)
+  {
+    AtomicLong version = versions.get(tag);
+    return version == null ? 0 : version.get();
+  }
+
+  static String[] tags(Collection<String> tables)
+  {
+    String[] tags = new String[tables.size()];
+    int i = 0;
+    for(String table : tables)
+    {
+      tags[i++] = tag(table);
+    }
+    return tags;
+  }
+
+  private static String tag(String table)
+  {
+    return table.trim().toLowerCase(Locale.ROOT);
+  }
+
+  public long getHits()
+  {
+    return hits.sum();
+  }
+
+  public long getMisses()
+  {
+    return misses.sum();
+  }
+
+  public long getEvictions()
+  {
+    return evictions.sum();
+  }
+
+  public int size()
+  {
+    synchronized(cache)
+    {
+      return cache.size();
+    }
+  }
+
+  /**
+   * @return number of cached rows
+   */
+  public long getWeight()
+  {
+    synchronized(cache)
+    {
+      return weight;
+    }
+  }
+
+  static final class Key
+  {
+
+    private final String sql;
+    private final Object[] params;
+    private final RowMapper<?> mapper;
+    private final int hash;
+
+    Key(String sql, Object[] params, RowMapper<?> mapper)
+    {
+      this.sql = sql;
+      this.params = params;
+      this.mapper = mapper;
+      this.hash = (sql.hashCode() * 31 + Arrays.deepHashCode(params)) * 31 + System.identityHashCode(mapper);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if(this == obj)
+      {
+        return true;
+      }
+      if(!(obj instanceof Key))
+      {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash && mapper == other.mapper && sql.equals(other.sql) && Arrays.deepEquals(params, other.params);
+    }
+
+  }
+
+  private static final class Entry
+  {
+
+    private final List<?> rows;
+    private final String[] tables;
+    private final long[] snapshot;
+    private final long loaded;
+
+    Entry(List<?> rows, String[] tables, long[] snapshot, long loaded)
+    {
+      this.rows = rows;
+      this.tables = tables;
+      this.snapshot = snapshot;
+      this.loaded = loaded;
+    }
+
+    boolean isCurrent(QJResultCache cache)
+    {
+      for(int i = 0; i < tables.length; i++)
+      {
+        if(cache.version(tables[i]) != snapshot[i])
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  }
+
+}
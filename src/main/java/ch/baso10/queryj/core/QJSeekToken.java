@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque, URL safe continuation token for keyset pagination, see
+ * {@link QueryBuilder#seekAfter(String, Object...)}. The token holds the sort key values of the last row of a page.
+ *
+ * Supported value types are String, Integer, Long, Double, BigDecimal, Boolean, UUID, Instant, LocalDate,
+ * LocalDateTime, java.sql.Date and java.sql.Timestamp.
+ *
+ * @author baso10
+ */
+public final class QJSeekToken
+{
+
+  private QJSeekToken()
+  {
+  }
+
+  /**
+   * @param lastRowValues sort key values of the last row, in order by column order
+   * @return token for the next page
+   */
+  public static String encode(Object... lastRowValues)
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try(DataOutputStream out = new DataOutputStream(bytes))
+    {
+      out.writeByte(lastRowValues.length);
+      for(Object value : lastRowValues)
+      {
+        out.writeByte(typeOf(value));
+        out.writeUTF(value.toString());
+      }
+    }
+    catch(IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+  }
+
+  /**
+   * @param token token created by {@link #encode(Object...)}
+   * @return sort key values of the last row
+   */
+  public static Object[] decode(String token)
+  {
+    try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token))))
+    {
+      Object[] values = new Object[in.readUnsignedByte()];
+      for(int i = 0; i < values.length; i++)
+      {
+        values[i] = valueOf(in.readByte(), in.readUTF());
+      }
+      if(in.available() > 0)
+      {
+        throw new IllegalArgumentException("Invalid seek token");
+      }
+      return values;
+    }
+    catch(IOException | RuntimeException e)
+    {
+      throw new IllegalArgumentException("Invalid seek token", e);
+    }
+  }
+
+  private static char typeOf(Object value)
+  {
+    if(value instanceof String)
+    {
+      return 's';
+    }
+    if(value instanceof Integer)
+    {
+      return 'i';
+    }
+    if(value instanceof Long)
+    {
+      return 'l';
+    }
+    if(value instanceof Double)
+    {
+      return 'd';
+    }
+    if(value instanceof BigDecimal)
+    {
+      return 'n';
+    }
+    if(value instanceof Boolean)
+    {
+      return 'b';
+    }
+    if(value instanceof UUID)
+    {
+      return 'u';
+    }
+    if(value instanceof Instant)
+    {
+      return 'I';
+    }
+    if(value instanceof LocalDate)
+    {
+      return 'L';
+    }
+    if(value instanceof LocalDateTime)
+    {
+      return 'T';
+    }
+    if(value instanceof java.sql.Timestamp)
+    {
+      return 't';
+    }
+    if(value instanceof java.sql.Date)
+    {
+      return 'D';
+    }
+    throw new IllegalArgumentException("Unsupported seek value: " + (value == null ? null : value.getClass().getName()));
+  }
+
+  private static Object valueOf(byte type, String value)
+  {
+    switch(type)
+    {
+      case 's':
+        return value;
+      case 'i':
+        return Integer.valueOf(value);
+      case 'l':
+        return Long.valueOf(value);
+      case 'd':
+        return Double.valueOf(value);
+      case 'n':
+        return new BigDecimal(value);
+      case 'b':
+        return Boolean.valueOf(value);
+      case 'u':
+        return UUID.fromString(value);
+      case 'I':
+        return Instant.parse(value);
+      case 'L':
+        return LocalDate.parse(value);
+      case 'T':
+        return LocalDateTime.parse(value);
+      case 't':
+        return java.sql.Timestamp.valueOf(value);
+      case 'D':
+        return java.sql.Date.valueOf(value);
+      default:
+        throw new IllegalArgumentException("Invalid seek token");
+    }
+  }
+
+}
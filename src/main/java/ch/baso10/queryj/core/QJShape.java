@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Arrays;
+
+/**
+ * Structural fingerprint of a {@link QueryBuilder}. Two builders with equal shapes render the same SQL text, parameter
+ * values are not part of the shape.
+ *
+ * @author baso10
+ */
+final class QJShape
+{
+
+  private final Object[] parts;
+  private final int hash;
+
+  QJShape(Object[] parts)
+  {
+    this.parts = parts;
+    this.hash = Arrays.hashCode(parts);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if(this == obj)
+    {
+      return true;
+    }
+    if(!(obj instanceof QJShape))
+    {
+      return false;
+    }
+    QJShape other = (QJShape) obj;
+    return hash == other.hash && Arrays.equals(parts, other.parts);
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * A statement captured by {@link QJSlowQueryLog}.
+ *
+ * @author baso10
+ */
+public class QJSlowQuery
+{
+
+  private final String fingerprint;
+  private final String sql;
+  private final String params;
+  private final long nanos;
+  private final long rows;
+  private final Exception failure;
+  private final String plan;
+
+  QJSlowQuery(String fingerprint, String sql, String params, long nanos, long rows, Exception failure, String plan)
+  {
+    this.fingerprint = fingerprint;
+    this.sql = sql;
+    this.params = params;
+    this.nanos = nanos;
+    this.rows = rows;
+    this.failure = failure;
+    this.plan = plan;
+  }
+
+  QJSlowQuery withPlan(String plan)
+  {
+    return new QJSlowQuery(fingerprint, sql, params, nanos, rows, failure, plan);
+  }
+
+  public String getFingerprint()
+  {
+    return fingerprint;
+  }
+
+  public String getSql()
+  {
+    return sql;
+  }
+
+  /**
+   * @return parameter types and sizes, values are not included
+   */
+  public String getParams()
+  {
+    return params;
+  }
+
+  public long getNanos()
+  {
+    return nanos;
+  }
+
+  /**
+   * @return rows fetched or updated, -1 if the statement failed
+   */
+  public long getRows()
+  {
+    return rows;
+  }
+
+  public Exception getFailure()
+  {
+    return failure;
+  }
+
+  /**
+   * @return EXPLAIN output, null if not captured
+   */
+  public String getPlan()
+  {
+    return plan;
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Slow query ").append(fingerprint).append(' ').append(nanos / 1000000).append(" ms");
+    if(failure != null)
+    {
+      sb.append(" failed: ").append(failure.getMessage());
+    }
+    else
+    {
+      sb.append(", ").append(rows).append(" rows");
+    }
+    sb.append("\n  ").append(sql).append("\n  params ").append(params);
+    if(plan != null)
+    {
+      sb.append("\n  plan:\n").append(plan);
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.lang.reflect.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * {@link QJListener} capturing statements slower than a threshold. Each statement shape is captured at most once per
+ * interval, all other executions only pay one map lookup. Parameter values are not captured, only their types and
+ * sizes. At most {@link #MAX_SHAPES} shapes are remembered, shapes not captured within the last interval are forgotten
+ * first. While all of them were captured within the interval, new shapes are counted but not captured.
+ *
+ * With {@link #explain(DataSource)} the plan of a SELECT statement is captured with <code>EXPLAIN</code> and the same
+ * parameters on the async executor, so the query thread is not delayed. The plan statement runs in a read-only
+ * transaction that is always rolled back, other statements are captured without plan.
+ *
+ * <pre>
+ * QJSlowQueryLog slowLog = new QJSlowQueryLog(500, TimeUnit.MILLISECONDS).explain(dataSource);
+ * QJInstrumentation.setListener(QJListener.compose(metrics, slowLog));
+ * </pre>
+ *
+ * @author baso10
+ */
+public class QJSlowQueryLog implements QJListener
+{
+
+  public static final int MAX_SHAPES = 1024;
+
+  private static final Logger LOGGER = Logger.getLogger("ch.baso10.queryj.slow");
+
+  private final long thresholdNanos;
+  private long intervalNanos = TimeUnit.MINUTES.toNanos(1);
+  private Consumer<QJSlowQuery> sink = slowQuery -> LOGGER.log(Level.WARNING, slowQuery.toString());
+  private DataSource explainDataSource;
+  private String explainPrefix = "EXPLAIN ";
+  private Executor explainExecutor = QJAsync.getDefault();
+  private final LongSupplier clock;
+  private final Map<String, Long> captured = new ConcurrentHashMap<>();
+  private final LongAdder slow = new LongAdder();
+
+  public QJSlowQueryLog(long threshold, TimeUnit unit)
+  {
+    this(threshold, unit, System::nanoTime);
+  }
+
+  QJSlowQueryLog(long threshold, TimeUnit unit, LongSupplier clock)
+  {
+    this.thresholdNanos = unit.toNanos(threshold);
+    this.clock = clock;
+  }
+
+  /**
+   * @param interval shortest time between two captures of the same shape
+   * @param unit unit
+   * @return this
+   */
+  public QJSlowQueryLog interval(long interval, TimeUnit unit)
+  {
+    this.intervalNanos = unit.toNanos(interval);
+    return this;
+  }
+
+  /**
+   * @param sink receiver of the captures, by default they are logged as warnings to <code>ch.baso10.queryj.slow</code>
+   * @return this
+   */
+  public QJSlowQueryLog sink(Consumer<QJSlowQuery> sink)
+  {
+    this.sink = sink;
+    return this;
+  }
+
+  /**
+   * @param dataSource data source used to run <code>EXPLAIN</code>, null to disable plan capture
+   * @return this
+   */
+  public QJSlowQueryLog explain(DataSource dataSource)
+  {
+    this.explainDataSource = dataSource;
+    return this;
+  }
+
+  /**
+   * @param explainPrefix prefix of the plan statement, e.g. <code>"EXPLAIN (FORMAT JSON) "</code>. Prefixes that
+   * execute the statement like <code>EXPLAIN ANALYZE</code> run the query a second time.
+   * @return this
+   */
+  public QJSlowQueryLog explainPrefix(String explainPrefix)
+  {
+    this.explainPrefix = explainPrefix;
+    return this;
+  }
+
+  public QJSlowQueryLog explainExecutor(Executor explainExecutor)
+  {
+    this.explainExecutor = explainExecutor == null ? QJAsync.getDefault() : explainExecutor;
+    return this;
+  }
+
+  /**
+   * @return number of executions above the threshold, captured or not
+   */
+  public long getSlowCount()
+  {
+    return slow.sum();
+  }
+
+  @Override
+  public void executed(String fingerprint, String sql, Object[] params, long nanos, long rows)
+  {
+    if(nanos >= thresholdNanos)
+    {
+      slow(fingerprint, sql, params, nanos, rows, null);
+    }
+  }
+
+  @Override
+  public void failed(String fingerprint, String sql, Object[] params, long nanos, Exception failure)
+  {
+    if(nanos >= thresholdNanos)
+    {
+      slow(fingerprint, sql, params, nanos, -1, failure);
+    }
+  }
+
+  private void slow(String fingerprint, String sql, Object[] params, long nanos, long rows, Exception failure)
+  {
+    slow.increment();
+    long now = clock.getAsLong();
+    Long last = captured.get(fingerprint);
+    if(last != null && now - last < intervalNanos)
+    {
+      return;
+    }
+    if(last == null && captured.size() >= MAX_SHAPES)
+    {
+      captured.values().removeIf(time -> now - time >= intervalNanos);
+      if(captured.size() >= MAX_SHAPES)
+      {
+        return;
+      }
+    }
+    boolean won = last == null ? captured.putIfAbsent(fingerprint, now) == null : captured.replace(fingerprint, last, now);
+    if(!won)
+    {
+      return;
+    }
+    QJSlowQuery slowQuery = new QJSlowQuery(fingerprint, sql, summary(params), nanos, rows, failure, null);
+    DataSource dataSource = explainDataSource;
+    if(dataSource == null || params == null || !isSelect(sql))
+    {
+      sink.accept(slowQuery);
+      return;
+    }
+    try
+    {
+      explainExecutor.execute(() -> sink.accept(slowQuery.withPlan(explain(dataSource, sql, params))));
+    }
+    catch(RejectedExecutionException e)
+    {
+      // executor saturated or shut down: drop this capture, the next slow execution tries again
+      captured.remove(fingerprint, now);
+    }
+  }
+
+  int getShapeCount()
+  {
+    return captured.size();
+  }
+
+  /**
+   * @return true if the statement only reads, EXPLAIN of other statements may execute them
+   */
+  static boolean isSelect(String sql)
+  {
+    int start = 0;
+    while(start < sql.length() && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '('))
+    {
+      start++;
+    }
+    return sql.regionMatches(true, start, "SELECT", 0, 6) || sql.regionMatches(true, start, "WITH", 0, 4);
+  }
+
+  private String explain(DataSource dataSource, String sql, Object[] params)
+  {
+    try(Connection connection = dataSource.getConnection())
+    {
+      boolean autoCommit = connection.getAutoCommit();
+      boolean readOnly = connection.isReadOnly();
+      connection.setAutoCommit(false);
+      connection.setReadOnly(true);
+      try(PreparedStatement statement = connection.prepareStatement(explainPrefix + QJPositionalSql.parse(sql).getSql()))
+      {
+        QJPositionalSql.setParameters(statement, params);
+        try(ResultSet rs = statement.executeQuery())
+        {
+          StringBuilder sb = new StringBuilder();
+          int columns = rs.getMetaData().getColumnCount();
+          while(rs.next())
+          {
+            for(int i = 1; i <= columns; i++)
+            {
+              sb.append(i > 1 ? " | " : "").append(rs.getString(i));
+            }
+            sb.append('\n');
+          }
+          return sb.toString();
+        }
+      }
+      finally
+      {
+        connection.rollback();
+        connection.setReadOnly(readOnly);
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+    catch(SQLException | RuntimeException e)
+    {
+      return "EXPLAIN failed: " + e.getMessage();
+    }
+  }
+
+  /**
+   * @return types and sizes of the values, e.g. <code>[Integer, String(12), null, Object[](80)]</code>
+   */
+  static String summary(Object[] params)
+  {
+    if(params == null)
+    {
+      return "batch";
+    }
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = 0; i < params.length; i++)
+    {
+      if(i > 0)
+      {
+        sb.append(", ");
+      }
+      Object value = params[i];
+      if(value == null)
+      {
+        sb.append("null");
+      }
+      else
+      {
+        sb.append(value.getClass().getSimpleName());
+        if(value instanceof CharSequence)
+        {
+          sb.append('(').append(((CharSequence) value).length()).append(')');
+        }
+        else if(value.getClass().isArray())
+        {
+          sb.append('(').append(Array.getLength(value)).append(')');
+        }
+      }
+    }
+    return sb.append(']').toString();
+  }
+
+}
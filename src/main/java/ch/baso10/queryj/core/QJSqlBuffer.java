@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+/**
+ * Render buffer strategy for {@link QueryBuilder#getSql()}.
+ *
+ * By default every render allocates a buffer pre-sized from {@link QueryBuilder#estimateLength()}. When thread local
+ * buffers are enabled, each thread reuses one buffer and only the resulting <code>String</code> is allocated. Buffers
+ * that grew above {@link #MAX_RETAINED_CAPACITY} are not kept. Leave this disabled with virtual threads, they would
+ * each hold their own buffer.
+ *
+ * @author baso10
+ */
+public final class QJSqlBuffer
+{
+
+  public static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+
+  private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+  private static volatile boolean threadLocal;
+
+  private QJSqlBuffer()
+  {
+  }
+
+  public static void setThreadLocal(boolean threadLocal)
+  {
+    QJSqlBuffer.threadLocal = threadLocal;
+  }
+
+  public static boolean isThreadLocal()
+  {
+    return threadLocal;
+  }
+
+  static StringBuilder acquire(int capacity)
+  {
+    if(!threadLocal)
+    {
+      return new StringBuilder(capacity);
+    }
+    StringBuilder sb = BUFFER.get();
+    sb.setLength(0);
+    sb.ensureCapacity(capacity);
+    return sb;
+  }
+
+  static String release(StringBuilder sb)
+  {
+    String value = sb.toString();
+    clear(sb);
+    return value;
+  }
+
+  static void clear(StringBuilder sb)
+  {
+    if(threadLocal)
+    {
+      sb.setLength(0);
+      if(sb.capacity() > MAX_RETAINED_CAPACITY)
+      {
+        BUFFER.remove();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache from the structural shape of a {@link QueryBuilder} to its SQL text.
+ *
+ * Builders with the same shape get the identical <code>String</code> instance, so downstream prepared statement
+ * caches can compare by reference and the SQL text is not allocated again for every request. On a hit the builder
+ * memoizes the cached text instead of rendering its own. {@link QueryExecutor#statementCache(QJStatementCache)} uses
+ * the cache for every query builder it executes.
+ *
+ * @author baso10
+ */
+public class QJStatementCache
+{
+
+  private final int maxSize;
+  private final Map<QJShape, String> cache;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public QJStatementCache(int maxSize)
+  {
+    if(maxSize <= 0)
+    {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.cache = new LinkedHashMap<QJShape, String>(Math.min(maxSize, 1024), 0.75f, true)
+    {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<QJShape, String> eldest)
+      {
+        if(size() > QJStatementCache.this.maxSize)
+        {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @param query query builder
+   * @return the cached SQL text for the shape of the query, rendered on a miss, also memoized by the query
+   */
+  public String getSql(QueryBuilder query)
+  {
+    QJShape shape = query.getShape();
+    String sql;
+    synchronized(cache)
+    {
+      sql = cache.get(shape);
+    }
+    if(sql != null)
+    {
+      hits.increment();
+      query.memoizeSql(sql);
+      return sql;
+    }
+    misses.increment();
+    String rendered = query.getSql();
+    synchronized(cache)
+    {
+      sql = cache.get(shape);
+      if(sql == null)
+      {
+        cache.put(shape, rendered);
+        sql = rendered;
+      }
+    }
+    return sql;
+  }
+
+  public long getHits()
+  {
+    return hits.sum();
+  }
+
+  public long getMisses()
+  {
+    return misses.sum();
+  }
+
+  public long getEvictions()
+  {
+    return evictions.sum();
+  }
+
+  public int getMaxSize()
+  {
+    return maxSize;
+  }
+
+  public int size()
+  {
+    synchronized(cache)
+    {
+      return cache.size();
+    }
+  }
+
+  public void clear()
+  {
+    synchronized(cache)
+    {
+      cache.clear();
+    }
+  }
+
+}
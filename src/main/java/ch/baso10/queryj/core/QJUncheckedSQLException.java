@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+
+/**
+ * Unchecked wrapper for a <code>SQLException</code> thrown where no checked exception can be declared, e.g. while a
+ * result stream is consumed.
+ *
+ * @author baso10
+ */
+public class QJUncheckedSQLException extends RuntimeException
+{
+
+  private static final long serialVersionUID = 1L;
+
+  public QJUncheckedSQLException(SQLException cause)
+  {
+    super(cause.getMessage(), cause);
+  }
+
+  @Override
+  public synchronized SQLException getCause()
+  {
+    return (SQLException) super.getCause();
+  }
+
+}
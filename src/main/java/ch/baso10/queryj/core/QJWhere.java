@@ -25,6 +25,7 @@ public class QJWhere
   private final String operator;
   private String condition;
   private QueryBuilder query;
+  private QJParam[] params;
 
   protected QJWhere(String operator, String condition)
   {
@@ -33,6 +34,16 @@ public class QJWhere
 
   }
 
+  /**
+   * Generated atomic predicate owning its parameters.
+   */
+  QJWhere(String operator, String condition, QJParam[] params)
+  {
+    this.operator = operator;
+    this.condition = condition;
+    this.params = params;
+  }
+
   protected QJWhere(String operator, QueryBuilder query)
   {
     this.operator = operator;
@@ -54,4 +65,29 @@ public class QJWhere
     return query;
   }
 
+  /**
+   * @return true for predicates generated by the builder, they need no parentheses in any AND or OR chain
+   */
+  public boolean isAtomic()
+  {
+    return params != null;
+  }
+
+  /**
+   * @return parameters of an atomic predicate, null otherwise
+   */
+  QJParam[] getParams()
+  {
+    return params;
+  }
+
+  QJWhere withOperator(String operator)
+  {
+    if(query != null)
+    {
+      return new QJWhere(operator, query);
+    }
+    return params != null ? new QJWhere(operator, condition, params) : new QJWhere(operator, condition);
+  }
+
 }
@@ -17,13 +17,11 @@ package ch.baso10.queryj.core;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Set;
 
-public class QueryBuilder
+public class QueryBuilder extends WhereBuilder<QueryBuilder>
 {
 
   private String select = "*";
@@ -31,14 +29,12 @@ public class QueryBuilder
   private QJTable from;
   private final List<QJJoin> leftJoin = new ArrayList<>();
   private final List<QJJoin> innerJoin = new ArrayList<>();
-  private final List<QJWhere> where = new ArrayList<>();
-  private final List<QJParam> params = new ArrayList<>();
   private String groupBy;
   private Integer limit;
   private Integer offset;
   private String orderBy;
-  private int paramIndex = 1;
-  private String paramKey = "p";
+  private QJShape shape;
+  private QueryBuilder fromQuery;
 
   public QueryBuilder()
   {
@@ -46,72 +42,73 @@ public class QueryBuilder
 
   public QueryBuilder(String paramKey)
   {
-    this.paramKey = paramKey;
+    super(paramKey);
   }
 
   public QueryBuilder from(String tableName)
   {
     this.from = new QJTable(tableName, "t");
+    this.fromQuery = null;
+    modified();
     return this;
   }
 
   public QueryBuilder from(String tableName, String alias)
   {
     this.from = new QJTable(tableName, alias);
+    this.fromQuery = null;
+    modified();
     return this;
   }
 
   public QueryBuilder select(String select)
   {
     this.select = select;
+    modified();
     return this;
   }
 
-  public QueryBuilder andWhere(String where, QJParam... params)
+  /**
+   * @param columns selected columns
+   * @return this
+   */
+  public QueryBuilder select(QJColumn<?>... columns)
   {
-    this.where.add(new QJWhere("AND", where));
-    if(params != null)
+    StringBuilder sb = new StringBuilder(columns.length * 16);
+    for(QJColumn<?> column : columns)
     {
-      this.params.addAll(Arrays.asList(params));
+      if(sb.length() > 0)
+      {
+        sb.append(", ");
+      }
+      sb.append(column.getExpression());
     }
-    return this;
-  }
-
-  public QueryBuilder andWhere(QueryBuilder where, QJParam... params)
-  {
-    this.where.add(new QJWhere("AND", where));
-    this.params.addAll(Arrays.asList(params));
-    return this;
-  }
-
-  public QueryBuilder orWhere(String where, QJParam... params)
-  {
-    this.where.add(new QJWhere("OR", where));
-    this.params.addAll(Arrays.asList(params));
-    return this;
+    return select(sb.toString());
   }
 
-  public QueryBuilder orWhere(QueryBuilder where, QJParam... params)
+  public QueryBuilder orderBy(String orderBy)
   {
-    this.where.add(new QJWhere("OR", where));
-    this.params.addAll(Arrays.asList(params));
+    this.orderBy = orderBy;
+    modified();
     return this;
   }
 
-  public QueryBuilder orderBy(String orderBy)
+  @Override
+  protected void clearRendered()
   {
-    this.orderBy = orderBy;
-    return this;
+    shape = null;
   }
 
-  public String getSql()
+  @Override
+  protected StringBuilder render(StringBuilder sb)
   {
-    StringBuilder sb = new StringBuilder();
     sb.append("SELECT ");
     if(distinct)
     {
       sb.append("DISTINCT ");
     }
+    Integer rowOffset = offset != null && offset > 0 ? offset : null;
+    getDialect().appendTop(sb, limit, rowOffset);
     sb.append(select);
     sb.append(" FROM ").append(from.getName());
     if(from.getAlias() != null)
@@ -154,7 +151,7 @@ public class QueryBuilder
     if(!this.where.isEmpty())
     {
       sb.append(" WHERE ");
-      sb.append(getWhereSql());
+      appendWhereSql(sb);
     }
 
     if(this.groupBy != null)
@@ -167,191 +164,232 @@ public class QueryBuilder
       sb.append(" ORDER BY ").append(this.orderBy);
     }
 
-    if(this.limit != null)
-    {
-      sb.append(" LIMIT ").append(this.limit);
-
-    }
-    if(this.offset != null && this.offset > 0)
-    {
-      if(this.limit == null)
-      {
-        sb.append(" LIMIT ").append(Integer.MAX_VALUE);
-      }
-      sb.append(" OFFSET ").append(this.offset);
-    }
-
-    return sb.toString();
+    getDialect().appendPaging(sb, limit, rowOffset, orderBy != null);
+    return sb;
   }
 
-  public Map<String, Object> getParams()
+  /**
+   * Limit and offset values are part of the shape because they are rendered into the SQL text.
+   *
+   * @return structural fingerprint of everything that is rendered by {@link #getSql()}
+   */
+  QJShape getShape()
   {
-    return this.params.stream().collect(Collectors.toMap(QJParam::getName, QJParam::getValue, (key, value) -> key));
+    validate();
+    if(shape == null)
+    {
+      shape = renderShape();
+    }
+    return shape;
   }
 
-  protected List<QJParam> getParamsList()
+  private QJShape renderShape()
   {
-    return this.params;
+    List<Object> parts = new ArrayList<>();
+    parts.add(select);
+    parts.add(distinct);
+    parts.add(from == null ? null : from.getName());
+    parts.add(from == null ? null : from.getAlias());
+    addJoinShape(parts, innerJoin);
+    addJoinShape(parts, leftJoin);
+    addWhereShape(parts);
+    parts.add(groupBy);
+    parts.add(orderBy);
+    parts.add(limit);
+    parts.add(offset);
+    parts.add(getDialect());
+    return new QJShape(parts.toArray());
   }
 
-  protected String getWhereSql()
+  private static void addJoinShape(List<Object> parts, List<QJJoin> joins)
   {
-    StringBuilder sb = new StringBuilder();
-    if(!this.where.isEmpty())
+    parts.add(joins.size());
+    for(QJJoin join : joins)
     {
-      boolean first = true;
-      for(QJWhere whereObj : where)
-      {
-        QueryBuilder subQuery = whereObj.getQuery();
-        if(subQuery != null)
-        {
-          if(!first)
-          {
-            sb.append(" ").append(whereObj.getOperator()).append(" ");
-          }
-          sb.append("(").append(subQuery.getWhereSql()).append(")");
-          this.params.addAll(subQuery.getParamsList());
-        }
-        else
-        {
-          if(!first)
-          {
-            sb.append(" ").append(whereObj.getOperator()).append(" ");
-          }
-          sb.append(whereObj.getCondition());
-        }
-        first = false;
-      }
+      parts.add(join.getTable().getName());
+      parts.add(join.getTable().getAlias());
+      parts.add(join.getCondition().getCondition());
     }
-
-    return sb.toString();
   }
 
-  public QueryBuilder andCompare(String field, Object value)
-  {
-    return andCompare(field, value, String.class);
-  }
-  
-  public QueryBuilder andCompare(String fieldTableAlias, String field, Object value, Class classType)
+  @Override
+  public int estimateLength()
   {
-    return andCompare((fieldTableAlias == null ? "" : (fieldTableAlias + ".")) + field, value, classType);
+    int length = 64 + select.length() + estimateWhereLength();
+    if(from != null)
+    {
+      length += from.getName().length() + (from.getAlias() == null ? 0 : from.getAlias().length());
+    }
+    length += estimateJoinLength(innerJoin) + estimateJoinLength(leftJoin);
+    length += (groupBy == null ? 0 : groupBy.length() + 10) + (orderBy == null ? 0 : orderBy.length() + 10);
+    return length;
   }
 
-  public QueryBuilder andCompare(String field, Object value, Class classType)
+  private static int estimateJoinLength(List<QJJoin> joins)
   {
-    if(value == null || "".equals(value) || (value instanceof String && "".equals(((String) value).trim())))
+    int length = 0;
+    for(QJJoin join : joins)
     {
-      return this;
+      QJTable table = join.getTable();
+      length += 18 + table.getName().length() + (table.getAlias() == null ? 0 : table.getAlias().length())
+              + join.getCondition().getCondition().length();
     }
+    return length;
+  }
 
-    String param = paramKey + paramIndex++;
-    String operation = null;
-    if(value instanceof String)
+  /**
+   * Keyset (seek) pagination: only rows after the given last row of the previous page in <code>orderColumns</code>
+   * order are selected, use with {@link #limit(Integer)} instead of {@link #offset(Integer)}.
+   *
+   * The order columns become the ORDER BY of the query, the last column must be unique. If all columns have the same
+   * direction and the dialect supports it, a row value comparison <code>(a, b) &gt; (:p1, :p2)</code> is rendered,
+   * otherwise the expanded form
+   * <code>(a &gt; :p1 OR (a = :p1 AND b &lt; :p2))</code>.
+   *
+   * @param orderColumns comma separated columns with optional ASC or DESC, e.g. <code>"t.created DESC, t.id DESC"</code>
+   * @param lastRowValues sort key values of the last row, none for the first page
+   * @return this
+   * @throws IllegalArgumentException if an order item is not a column or expression with optional ASC or DESC, e.g.
+   * with NULLS FIRST or a comma inside an expression
+   * @see QJSeekToken
+   */
+  public QueryBuilder seekAfter(String orderColumns, Object... lastRowValues)
+  {
+    String[] columns = orderColumns.split(",", -1);
+    String[] fields = new String[columns.length];
+    boolean[] descending = new boolean[columns.length];
+    for(int i = 0; i < columns.length; i++)
     {
-      String stringValue = (String) value;
-
-      String regex = "^(<>|>=|>|<=|<|=)";
-      Pattern pattern = Pattern.compile(regex);
-      Matcher matcher = pattern.matcher(stringValue);
-
-      if(matcher.find())
+      String column = columns[i].trim();
+      String upper = column.toUpperCase();
+      descending[i] = upper.endsWith(" DESC");
+      fields[i] = descending[i] || upper.endsWith(" ASC") ? column.substring(0, column.lastIndexOf(' ')).trim() : column;
+      if(!isSeekField(fields[i]))
       {
-        int end = matcher.end();
-        operation = matcher.group();
-        value = stringValue.substring(end);
+        throw new IllegalArgumentException("Unsupported seek column, use a column with optional ASC or DESC: " + column);
       }
     }
-
-    if(Number.class.isAssignableFrom(classType) || value instanceof Number)
+    if(this.orderBy == null)
     {
-      try
+      this.orderBy = orderColumns;
+    }
+    else if(!this.orderBy.trim().equals(orderColumns.trim()))
+    {
+      throw new IllegalStateException("Seek columns do not match order by: " + this.orderBy);
+    }
+    if(lastRowValues != null && lastRowValues.length > 0)
+    {
+      if(columns.length != lastRowValues.length)
       {
-
-        if(Integer.class.isAssignableFrom(classType) || value instanceof Integer)
-        {
-          value = Integer.parseInt("" + value);
-        }
-        else if(Long.class.isAssignableFrom(classType) || value instanceof Long)
-        {
-          value = Long.parseLong("" + value);
-        }
-        else if(Double.class.isAssignableFrom(classType) || value instanceof Double)
-        {
-          value = Double.parseDouble("" + value);
-        }
-        String not = "<>".equals(operation) ? "NOT " : "";
-        if(operation == null || "<>".equals(operation))
-        {
-          operation = "=";
-        }
-        this.where.add(new QJWhere("AND", not + field + " " + operation + " :" + param));
-        this.params.add(new QJParam(param, value));
-
+        throw new IllegalArgumentException("Expected " + columns.length + " seek values, got " + lastRowValues.length);
       }
-      catch(Exception e)
+      String[] names = new String[columns.length];
+      QJParam[] seekParams = new QJParam[columns.length];
+      boolean mixed = false;
+      for(int i = 0; i < columns.length; i++)
       {
-        e.printStackTrace();
+        if(lastRowValues[i] == null)
+        {
+          throw new IllegalArgumentException("Seek value must not be null: " + columns[i].trim());
+        }
+        mixed |= descending[i] != descending[0];
+        seekParams[i] = reuse(new QJParam(nextParamName(), lastRowValues[i]));
+        names[i] = seekParams[i].getName();
       }
+      boolean expanded = mixed || (columns.length > 1 && !getDialect().supportsRowValues());
+      addPredicate(expanded ? seekExpanded(fields, descending, names) : seekRowValue(fields, descending[0], names), seekParams);
+    }
+    modified();
+    return this;
+  }
+
+  /**
+   * @param orderColumns comma separated columns with optional ASC or DESC
+   * @param token token from {@link QJSeekToken#encode(Object...)}, null for the first page
+   * @return this
+   * @see #seekAfter(String, Object...)
+   */
+  public QueryBuilder seekAfterToken(String orderColumns, String token)
+  {
+    return seekAfter(orderColumns, token == null ? new Object[0] : QJSeekToken.decode(token));
+  }
+
+  /**
+   * A seek field is a column or an expression without top level whitespace, so NULLS FIRST / LAST and expressions
+   * split at their commas are rejected.
+   */
+  private static boolean isSeekField(String field)
+  {
+    if(field.isEmpty())
+    {
+      return false;
     }
-    else
+    int depth = 0;
+    for(int i = 0; i < field.length(); i++)
     {
-      String stringValue = "" + value;
-      //contains by default
-      if(operation == null)
+      char c = field.charAt(i);
+      if(c == '(')
       {
-        if(stringValue.contains("*"))
-        {
-          //manual like %
-          stringValue = stringValue.replaceAll("\\*", "%");
-        }
-        else
-        {
-          stringValue = "%" + stringValue + "%";
-        }
-        this.where.add(new QJWhere("AND", field + " LIKE :" + param));
-        this.params.add(new QJParam(param, stringValue));
+        depth++;
       }
-      else if("=".equals(operation))
+      else if(c == ')' && --depth < 0)
       {
-        this.where.add(new QJWhere("AND", field + " = :" + param));
-        this.params.add(new QJParam(param, stringValue));
+        return false;
       }
-      else if("<>".equals(operation))
+      else if(depth == 0 && Character.isWhitespace(c))
       {
-        this.where.add(new QJWhere("AND", "NOT " + field + " = :" + param));
-        this.params.add(new QJParam(param, stringValue));
+        return false;
       }
-      else if(">".equals(operation))
+    }
+    return depth == 0;
+  }
+
+  private static String seekRowValue(String[] fields, boolean descending, String[] names)
+  {
+    if(fields.length == 1)
+    {
+      return fields[0] + (descending ? " < :" : " > :") + names[0];
+    }
+    return "(" + String.join(", ", fields) + (descending ? ") < (:" : ") > (:") + String.join(", :", names) + ")";
+  }
+
+  private static String seekExpanded(String[] fields, boolean[] descending, String[] names)
+  {
+    StringBuilder sb = new StringBuilder("(");
+    for(int i = 0; i < fields.length; i++)
+    {
+      if(i > 0)
       {
-        stringValue = "%" + stringValue;
-        this.where.add(new QJWhere("AND", field + " LIKE :" + param));
-        this.params.add(new QJParam(param, stringValue));
+        sb.append(" OR ");
       }
-      else if("<".equals(operation))
+      sb.append('(');
+      for(int j = 0; j < i; j++)
       {
-        stringValue = stringValue + "%";
-        this.where.add(new QJWhere("AND", field + " LIKE :" + param));
-        this.params.add(new QJParam(param, stringValue));
+        sb.append(fields[j]).append(" = :").append(names[j]).append(" AND ");
       }
+      sb.append(fields[i]).append(descending[i] ? " < :" : " > :").append(names[i]).append(')');
     }
-    return this;
+    return sb.append(')').toString();
   }
 
   public QueryBuilder limit(Integer limit)
   {
     this.limit = limit;
+    modified();
     return this;
   }
 
   public QueryBuilder offset(Integer offset)
   {
     this.offset = offset;
+    modified();
     return this;
   }
 
   public QueryBuilder groupBy(String groupBy)
   {
     this.groupBy = groupBy;
+    modified();
     return this;
   }
 
@@ -359,6 +397,7 @@ public class QueryBuilder
   {
     this.leftJoin.add(new QJJoin(new QJTable(table, alias), new QJWhere(null, on)));
     this.params.addAll(Arrays.asList(params));
+    modified();
     return this;
   }
 
@@ -366,18 +405,91 @@ public class QueryBuilder
   {
     this.innerJoin.add(new QJJoin(new QJTable(table, alias), new QJWhere(null, on)));
     this.params.addAll(Arrays.asList(params));
+    modified();
     return this;
   }
 
-  public QueryBuilder addParam(String name, Object value)
+  /**
+   * Derives the query counting all rows of this query regardless of paging. Order, limit and offset are dropped, a
+   * distinct or grouped query is wrapped as <code>SELECT COUNT(*) FROM (...) c</code>.
+   *
+   * @return new count query with the same parameters, this builder is not modified
+   */
+  public QueryBuilder toCountQuery()
   {
-    this.params.add(QJParam.p(name, value));
-    return this;
+    QueryBuilder count = new QueryBuilder();
+    if(!distinct && groupBy == null)
+    {
+      count.from = from;
+      count.innerJoin.addAll(innerJoin);
+      count.leftJoin.addAll(leftJoin);
+      copyWhereTo(count);
+      return count.select("COUNT(*)");
+    }
+    QueryBuilder rows = new QueryBuilder();
+    rows.select = select;
+    rows.distinct = distinct;
+    rows.from = from;
+    rows.innerJoin.addAll(innerJoin);
+    rows.leftJoin.addAll(leftJoin);
+    rows.groupBy = groupBy;
+    copyWhereTo(rows);
+    copySettingsTo(count);
+    count.params.addAll(rows.getParamsList());
+    count.select("COUNT(*)").from("(" + rows.getSql() + ")", "c");
+    count.fromQuery = rows;
+    return count;
+  }
+
+  /**
+   * Copies the whole state and continues the parameter name sequence, predicates, joins and nested groups are shared.
+   *
+   * @return new builder, changes to it do not affect this builder
+   */
+  QueryBuilder copy()
+  {
+    QueryBuilder copy = new QueryBuilder();
+    copy.select = select;
+    copy.distinct = distinct;
+    copy.from = from;
+    copy.leftJoin.addAll(leftJoin);
+    copy.innerJoin.addAll(innerJoin);
+    copy.groupBy = groupBy;
+    copy.limit = limit;
+    copy.offset = offset;
+    copy.orderBy = orderBy;
+    copy.fromQuery = fromQuery;
+    copyWhereTo(copy);
+    return copy;
+  }
+
+  @Override
+  Set<String> getTables()
+  {
+    Set<String> tables = new LinkedHashSet<>();
+    if(fromQuery != null)
+    {
+      tables.addAll(fromQuery.getTables());
+    }
+    else if(from != null)
+    {
+      tables.add(from.getName());
+    }
+    for(QJJoin join : innerJoin)
+    {
+      tables.add(join.getTable().getName());
+    }
+    for(QJJoin join : leftJoin)
+    {
+      tables.add(join.getTable().getName());
+    }
+    return tables;
   }
 
   public QueryBuilder distinct(boolean distinct)
   {
     this.distinct = distinct;
+    modified();
     return this;
   }
 }
@@ -0,0 +1,828 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.sql.DataSource;
+
+/**
+ * Executes builders on connections of a <code>DataSource</code>. Every call borrows one connection and closes the
+ * statement, result set and connection before it returns.
+ *
+ * <pre>
+ * QueryExecutor executor = new QueryExecutor(dataSource).fetchSize(500).queryTimeout(30);
+ * List&lt;String&gt; names = executor.query(query, (rs, rowNum) -&gt; rs.getString("name"));
+ * </pre>
+ *
+ * @author baso10
+ */
+public class QueryExecutor
+{
+
+  private final DataSource dataSource;
+  private int fetchSize = 100;
+  private int streamFetchSize = 1000;
+  private int maxRows;
+  private int queryTimeout;
+  private Executor asyncExecutor = QJAsync.getDefault();
+  private Semaphore permits;
+  private QJResultCache resultCache;
+  private QJStatementCache statementCache;
+  private QJListener listener;
+
+  public QueryExecutor(DataSource dataSource)
+  {
+    if(dataSource == null)
+    {
+      throw new IllegalArgumentException("dataSource must not be null");
+    }
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * @param fetchSize rows per round trip, 0 for the driver default
+   * @return this
+   */
+  public QueryExecutor fetchSize(int fetchSize)
+  {
+    if(fetchSize < 0)
+    {
+      throw new IllegalArgumentException("fetchSize must not be negative: " + fetchSize);
+    }
+    this.fetchSize = fetchSize;
+    return this;
+  }
+
+  /**
+   * Fetch size of {@link #stream(WhereBuilder, RowMapper)}. Use <code>Integer.MIN_VALUE</code> for row by row streaming
+   * with MySQL Connector/J.
+   *
+   * @param streamFetchSize rows per round trip, 0 for the driver default
+   * @return this
+   */
+  public QueryExecutor streamFetchSize(int streamFetchSize)
+  {
+    if(streamFetchSize < 0 && streamFetchSize != Integer.MIN_VALUE)
+    {
+      throw new IllegalArgumentException("streamFetchSize must not be negative: " + streamFetchSize);
+    }
+    this.streamFetchSize = streamFetchSize;
+    return this;
+  }
+
+  /**
+   * @param maxRows row limit enforced by the driver, 0 for no limit
+   * @return this
+   */
+  public QueryExecutor maxRows(int maxRows)
+  {
+    if(maxRows < 0)
+    {
+      throw new IllegalArgumentException("maxRows must not be negative: " + maxRows);
+    }
+    this.maxRows = maxRows;
+    return this;
+  }
+
+  /**
+   * @param queryTimeout timeout in seconds, 0 for no timeout
+   * @return this
+   */
+  public QueryExecutor queryTimeout(int queryTimeout)
+  {
+    if(queryTimeout < 0)
+    {
+      throw new IllegalArgumentException("queryTimeout must not be negative: " + queryTimeout);
+    }
+    this.queryTimeout = queryTimeout;
+    return this;
+  }
+
+  /**
+   * @param asyncExecutor executor of the async methods, by default {@link QJAsync#getDefault()}
+   * @return this
+   */
+  public QueryExecutor asyncExecutor(Executor asyncExecutor)
+  {
+    this.asyncExecutor = asyncExecutor == null ? QJAsync.getDefault() : asyncExecutor;
+    return this;
+  }
+
+  /**
+   * Limits the number of async queries that use a connection of the data source at the same time, further queries
+   * wait for a permit. Share one executor per data source for the limit to hold.
+   *
+   * @param maxConcurrency concurrent queries, 0 for no limit
+   * @return this
+   */
+  public QueryExecutor maxConcurrency(int maxConcurrency)
+  {
+    if(maxConcurrency < 0)
+    {
+      throw new IllegalArgumentException("maxConcurrency must not be negative: " + maxConcurrency);
+    }
+    this.permits = maxConcurrency == 0 ? null : new Semaphore(maxConcurrency, true);
+    return this;
+  }
+
+  /**
+   * @param resultCache cache of {@link #queryCached(WhereBuilder, RowMapper)}, invalidated by the mutations of this
+   * executor
+   * @return this
+   */
+  public QueryExecutor resultCache(QJResultCache resultCache)
+  {
+    this.resultCache = resultCache;
+    return this;
+  }
+
+  /**
+   * @param statementCache cache of the SQL text of {@link QueryBuilder} queries by shape, queries with a known shape
+   * are not rendered again
+   * @return this
+   */
+  public QueryExecutor statementCache(QJStatementCache statementCache)
+  {
+    this.statementCache = statementCache;
+    return this;
+  }
+
+  /**
+   * @param listener listener of this executor, null for {@link QJInstrumentation#getListener()}
+   * @return this
+   */
+  public QueryExecutor listener(QJListener listener)
+  {
+    this.listener = listener;
+    return this;
+  }
+
+  public QJResultCache getResultCache()
+  {
+    return resultCache;
+  }
+
+  public QJStatementCache getStatementCache()
+  {
+    return statementCache;
+  }
+
+  public DataSource getDataSource()
+  {
+    return dataSource;
+  }
+
+  public int getFetchSize()
+  {
+    return fetchSize;
+  }
+
+  public int getStreamFetchSize()
+  {
+    return streamFetchSize;
+  }
+
+  public int getMaxRows()
+  {
+    return maxRows;
+  }
+
+  public int getQueryTimeout()
+  {
+    return queryTimeout;
+  }
+
+  /**
+   * @param query query
+   * @param mapper row mapper
+   * @param <T> row type
+   * @return mapped rows
+   * @throws SQLException if the driver fails
+   */
+  public <T> List<T> query(WhereBuilder<?> query, RowMapper<T> mapper) throws SQLException
+  {
+    return query(positional(query), query.getBindings(), mapper);
+  }
+
+  public <T> List<T> query(CompiledQuery query, RowMapper<T> mapper) throws SQLException
+  {
+    return query(query.getPositional(), query.getBindings(), mapper);
+  }
+
+  /**
+   * @param query query
+   * @param mapper row mapper
+   * @param <T> row type
+   * @return the first mapped row, null if there is none
+   * @throws SQLException if the driver fails
+   */
+  public <T> T queryFirst(WhereBuilder<?> query, RowMapper<T> mapper) throws SQLException
+  {
+    List<T> rows = query(positional(query), query.getBindings(), mapper, 1);
+    return rows.isEmpty() ? null : rows.get(0);
+  }
+
+  /**
+   * Serves the rows from the result cache while no table of the query was modified and the entry has not expired,
+   * without a cache this is {@link #query(WhereBuilder, RowMapper)}.
+   *
+   * @param query query
+   * @param mapper row mapper, compared by identity
+   * @param <T> row type
+   * @return read-only mapped rows
+   * @throws SQLException if the driver fails
+   */
+  public <T> List<T> queryCached(WhereBuilder<?> query, RowMapper<T> mapper) throws SQLException
+  {
+    QJResultCache cache = resultCache;
+    QJPositionalSql sql = positional(query);
+    QJBindings params = query.getBindings();
+    if(cache == null)
+    {
+      return query(sql, params, mapper);
+    }
+    QJResultCache.Key key = new QJResultCache.Key(sql.getSql(), params.getValues(), mapper);
+    List<T> rows = cache.get(key);
+    if(rows == null)
+    {
+      String[] tables = QJResultCache.tags(query.getTables());
+      long[] snapshot = cache.snapshot(tables);
+      long loaded = cache.now();
+      rows = cache.put(key, tables, snapshot, loaded, query(sql, params, mapper));
+    }
+    return rows;
+  }
+
+  /**
+   * Runs the query on the async executor, independent queries started one after the other run in parallel. The query
+   * is rendered on the calling thread, builders are not thread-safe and share nested groups.
+   *
+   * @param query query
+   * @param mapper row mapper
+   * @param <T> row type
+   * @return future of the mapped rows, completed exceptionally with the <code>SQLException</code> on failure
+   */
+  public <T> CompletableFuture<List<T>> executeAsync(WhereBuilder<?> query, RowMapper<T> mapper)
+  {
+    QJPositionalSql sql;
+    QJBindings params;
+    try
+    {
+      sql = positional(query);
+      params = query.getBindings();
+    }
+    catch(RuntimeException e)
+    {
+      return failed(e);
+    }
+    return async(() -> query(sql, params, mapper));
+  }
+
+  public <T> CompletableFuture<List<T>> executeAsync(CompiledQuery query, RowMapper<T> mapper)
+  {
+    return async(() -> query(query, mapper));
+  }
+
+  /**
+   * @param statement statement, rendered on the calling thread
+   * @return future of the update count
+   * @see #executeAsync(WhereBuilder, RowMapper)
+   */
+  public CompletableFuture<Integer> updateAsync(WhereBuilder<?> statement)
+  {
+    QJPositionalSql sql;
+    QJBindings params;
+    Set<String> tables;
+    try
+    {
+      sql = statement.getPositional();
+      params = statement.getBindings();
+      tables = statement.getTables();
+    }
+    catch(RuntimeException e)
+    {
+      return failed(e);
+    }
+    return async(() ->
+    {
+      try
+      {
+        return update(sql, params);
+      }
+      finally
+      {
+        invalidate(tables);
+      }
+    });
+  }
+
+  /**
+   * Takes the SQL of a query builder from the statement cache, the builder is only rendered for an unknown shape.
+   */
+  private QJPositionalSql positional(WhereBuilder<?> query)
+  {
+    QJStatementCache cache = statementCache;
+    if(cache != null && query instanceof QueryBuilder)
+    {
+      cache.getSql((QueryBuilder) query);
+    }
+    return query.getPositional();
+  }
+
+  private static <T> CompletableFuture<T> failed(Throwable failure)
+  {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(failure);
+    return future;
+  }
+
+  /**
+   * Runs {@link QueryBuilder#toCountQuery()} on the async executor while the page is read on the calling thread.
+   *
+   * @param query paged query
+   * @param mapper row mapper
+   * @param <T> row type
+   * @return rows of the page and the total row count
+   * @throws SQLException if one of the queries fails
+   */
+  public <T> QJPage<T> queryPage(QueryBuilder query, RowMapper<T> mapper) throws SQLException
+  {
+    CompletableFuture<Long> total = countAsync(query);
+    List<T> rows;
+    try
+    {
+      rows = query(query, mapper);
+    }
+    catch(SQLException | RuntimeException e)
+    {
+      total.cancel(false);
+      throw e;
+    }
+    return new QJPage<>(rows, join(total));
+  }
+
+  /**
+   * @param query paged query
+   * @param mapper row mapper
+   * @param <T> row type
+   * @return future of the page, count and page query run concurrently
+   */
+  public <T> CompletableFuture<QJPage<T>> queryPageAsync(QueryBuilder query, RowMapper<T> mapper)
+  {
+    CompletableFuture<Long> total = countAsync(query);
+    QJPositionalSql sql = positional(query);
+    QJBindings params = query.getBindings();
+    return async(() -> query(sql, params, mapper)).thenCombine(total, QJPage::new);
+  }
+
+  /**
+   * Both statements are rendered on the calling thread, the builders share nested groups.
+   */
+  private CompletableFuture<Long> countAsync(QueryBuilder query)
+  {
+    QueryBuilder count = query.toCountQuery();
+    QJPositionalSql sql = positional(count);
+    QJBindings params = count.getBindings();
+    return async(() -> query(sql, params, (rs, rowNum) -> rs.getLong(1), 1).get(0));
+  }
+
+  private static <T> T join(CompletableFuture<T> future) throws SQLException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for the query", e);
+    }
+    catch(ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      if(cause instanceof SQLException)
+      {
+        throw (SQLException) cause;
+      }
+      if(cause instanceof RuntimeException)
+      {
+        throw (RuntimeException) cause;
+      }
+      if(cause instanceof Error)
+      {
+        throw (Error) cause;
+      }
+      throw new SQLException(cause);
+    }
+  }
+
+  <T> CompletableFuture<T> async(QJSqlCallable<T> call)
+  {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Semaphore limit = permits;
+    try
+    {
+      asyncExecutor.execute(() ->
+      {
+        try
+        {
+          if(limit == null)
+          {
+            future.complete(call.call());
+            return;
+          }
+          limit.acquire();
+          try
+          {
+            future.complete(call.call());
+          }
+          finally
+          {
+            limit.release();
+          }
+        }
+        catch(InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          future.completeExceptionally(e);
+        }
+        catch(Throwable e)
+        {
+          future.completeExceptionally(e);
+        }
+      });
+    }
+    catch(RuntimeException e)
+    {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Lazily maps the rows of an open cursor, only the rows of one fetch are held in memory. Auto commit is switched off
+   * while the stream is open because some drivers (e.g. PostgreSQL) only use a server side cursor inside a
+   * transaction. The stream must be closed, e.g. with try-with-resources, unless it is consumed completely.
+   *
+   * @param query query
+   * @param mapper row mapper
+   * @param <T> row type
+   * @return stream that closes the connection on close
+   * @throws SQLException if the query can not be executed
+   */
+  public <T> Stream<T> stream(WhereBuilder<?> query, RowMapper<T> mapper) throws SQLException
+  {
+    return stream(positional(query), query.getBindings(), mapper);
+  }
+
+  public <T> Stream<T> stream(CompiledQuery query, RowMapper<T> mapper) throws SQLException
+  {
+    return stream(query.getPositional(), query.getBindings(), mapper);
+  }
+
+  /**
+   * @param statement UPDATE, DELETE or any other statement without result set
+   * @return update count
+   * @throws SQLException if the driver fails
+   */
+  public int update(WhereBuilder<?> statement) throws SQLException
+  {
+    try
+    {
+      return update(statement.getPositional(), statement.getBindings());
+    }
+    finally
+    {
+      invalidate(statement.getTables());
+    }
+  }
+
+  /**
+   * Compiled statements do not know their tables, call {@link QJResultCache#invalidate(String...)} if they modify
+   * cached tables.
+   *
+   * @param statement statement without result set
+   * @return update count
+   * @throws SQLException if the driver fails
+   */
+  public int update(CompiledQuery statement) throws SQLException
+  {
+    return update(statement.getPositional(), statement.getBindings());
+  }
+
+  /**
+   * Runs all statements of {@link InsertBuilder#getStatements()} on one connection. If the rows are split into several
+   * statements and the connection is in auto commit mode, they are run in one transaction that is rolled back if a
+   * statement fails, so either all or no rows are inserted. Without auto commit the caller's transaction is used.
+   *
+   * @param insert insert
+   * @return number of inserted rows
+   * @throws SQLException if the driver fails
+   */
+  public int insert(InsertBuilder insert) throws SQLException
+  {
+    List<CompiledQuery> statements = insert.getStatements();
+    int count = 0;
+    try(Connection connection = dataSource.getConnection())
+    {
+      boolean autoCommit = statements.size() > 1 && connection.getAutoCommit();
+      if(autoCommit)
+      {
+        connection.setAutoCommit(false);
+      }
+      try
+      {
+        for(CompiledQuery statement : statements)
+        {
+          count += update(connection, statement.getPositional(), statement.getBindings());
+        }
+        if(autoCommit)
+        {
+          connection.commit();
+        }
+      }
+      catch(SQLException | RuntimeException e)
+      {
+        if(autoCommit)
+        {
+          try
+          {
+            connection.rollback();
+          }
+          catch(SQLException suppressed)
+          {
+            e.addSuppressed(suppressed);
+          }
+        }
+        throw e;
+      }
+      finally
+      {
+        if(autoCommit)
+        {
+          connection.setAutoCommit(true);
+        }
+      }
+    }
+    finally
+    {
+      if(insert.getTable() != null)
+      {
+        invalidate(Collections.singleton(insert.getTable()));
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @param batch batch
+   * @return update counts
+   * @throws SQLException if the driver fails
+   */
+  public int[] batch(QJBatch batch) throws SQLException
+  {
+    QJListener listener = listener();
+    long start = listener == null ? 0 : System.nanoTime();
+    // a successful execution clears the batch
+    Set<String> tables = new LinkedHashSet<>(batch.getTables());
+    try(Connection connection = dataSource.getConnection())
+    {
+      int[] counts = batch.execute(connection);
+      if(listener != null)
+      {
+        long rows = 0;
+        for(int count : counts)
+        {
+          rows += Math.max(count, 0);
+        }
+        listener.executed(batch.getPositional().getFingerprint(), batch.getSql(), null, System.nanoTime() - start, rows);
+      }
+      return counts;
+    }
+    catch(SQLException | RuntimeException e)
+    {
+      if(listener != null)
+      {
+        listener.failed(batch.getPositional().getFingerprint(), batch.getSql(), null, System.nanoTime() - start, e);
+      }
+      throw e;
+    }
+    finally
+    {
+      invalidate(tables);
+    }
+  }
+
+  /**
+   * Also called when a statement failed, the driver may have applied part of it.
+   */
+  private void invalidate(Set<String> tables)
+  {
+    QJResultCache cache = resultCache;
+    if(cache != null && !tables.isEmpty())
+    {
+      cache.invalidate(tables);
+    }
+  }
+
+  private <T> List<T> query(QJPositionalSql sql, QJBindings params, RowMapper<T> mapper) throws SQLException
+  {
+    return query(sql, params, mapper, maxRows);
+  }
+
+  private <T> List<T> query(QJPositionalSql sql, QJBindings params, RowMapper<T> mapper, int maxRows) throws SQLException
+  {
+    QJListener listener = listener();
+    long start = listener == null ? 0 : System.nanoTime();
+    try(Connection connection = dataSource.getConnection();
+            PreparedStatement statement = prepare(connection, sql, params, fetchSize, maxRows);
+            ResultSet rs = statement.executeQuery())
+    {
+      List<T> rows = new ArrayList<>();
+      int rowNum = 0;
+      while(rs.next())
+      {
+        rows.add(mapper.mapRow(rs, rowNum++));
+      }
+      if(listener != null)
+      {
+        listener.executed(sql.getFingerprint(), sql.getNamedSql(), params.getValues(), System.nanoTime() - start, rows.size());
+      }
+      return rows;
+    }
+    catch(SQLException | RuntimeException e)
+    {
+      if(listener != null)
+      {
+        listener.failed(sql.getFingerprint(), sql.getNamedSql(), params.getValues(), System.nanoTime() - start, e);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * The listener is called when the cursor is closed with the rows read so far. The latency is measured up to
+   * <code>executeQuery</code>, the time the caller spends consuming rows is not included.
+   */
+  private <T> Stream<T> stream(QJPositionalSql sql, QJBindings params, RowMapper<T> mapper) throws SQLException
+  {
+    QJListener listener = listener();
+    long start = listener == null ? 0 : System.nanoTime();
+    Connection connection = dataSource.getConnection();
+    boolean autoCommit = false;
+    PreparedStatement statement = null;
+    try
+    {
+      autoCommit = connection.getAutoCommit();
+      if(autoCommit)
+      {
+        connection.setAutoCommit(false);
+      }
+      statement = prepare(connection, sql, params, streamFetchSize, maxRows);
+      ResultSet rs = statement.executeQuery();
+      QJCursor<T> cursor = new QJCursor<>(connection, autoCommit, statement, rs, mapper);
+      if(listener != null)
+      {
+        long nanos = System.nanoTime() - start;
+        cursor.onClose((failure, rows) ->
+        {
+          if(failure == null)
+          {
+            listener.executed(sql.getFingerprint(), sql.getNamedSql(), params.getValues(), nanos, rows);
+          }
+          else
+          {
+            listener.failed(sql.getFingerprint(), sql.getNamedSql(), params.getValues(), nanos, failure);
+          }
+        });
+      }
+      return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+    catch(SQLException | RuntimeException e)
+    {
+      if(listener != null)
+      {
+        listener.failed(sql.getFingerprint(), sql.getNamedSql(), params.getValues(), System.nanoTime() - start, e);
+      }
+      try
+      {
+        if(statement != null)
+        {
+          statement.close();
+        }
+        if(autoCommit)
+        {
+          connection.rollback();
+          connection.setAutoCommit(true);
+        }
+      }
+      catch(SQLException suppressed)
+      {
+        e.addSuppressed(suppressed);
+      }
+      finally
+      {
+        connection.close();
+      }
+      throw e;
+    }
+  }
+
+  private int update(QJPositionalSql sql, QJBindings params) throws SQLException
+  {
+    try(Connection connection = dataSource.getConnection())
+    {
+      return update(connection, sql, params);
+    }
+  }
+
+  private int update(Connection connection, QJPositionalSql sql, QJBindings params) throws SQLException
+  {
+    QJListener listener = listener();
+    long start = listener == null ? 0 : System.nanoTime();
+    try(PreparedStatement statement = prepare(connection, sql, params, 0, 0))
+    {
+      int count = statement.executeUpdate();
+      if(listener != null)
+      {
+        listener.executed(sql.getFingerprint(), sql.getNamedSql(), params.getValues(), System.nanoTime() - start, count);
+      }
+      return count;
+    }
+    catch(SQLException | RuntimeException e)
+    {
+      if(listener != null)
+      {
+        listener.failed(sql.getFingerprint(), sql.getNamedSql(), params.getValues(), System.nanoTime() - start, e);
+      }
+      throw e;
+    }
+  }
+
+  private QJListener listener()
+  {
+    QJListener executorListener = listener;
+    return executorListener != null ? executorListener : QJInstrumentation.getListener();
+  }
+
+  /**
+   * Prepares the positional form of the SQL with the configured fetch size, row limit and timeout and binds the
+   * parameters. The statement is closed if binding fails.
+   */
+  PreparedStatement prepare(Connection connection, QJPositionalSql sql, QJBindings params, int fetchSize, int maxRows)
+          throws SQLException
+  {
+    PreparedStatement statement = connection.prepareStatement(sql.getSql(), ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+    try
+    {
+      if(fetchSize != 0)
+      {
+        statement.setFetchSize(fetchSize);
+      }
+      if(maxRows > 0)
+      {
+        statement.setMaxRows(maxRows);
+      }
+      if(queryTimeout > 0)
+      {
+        statement.setQueryTimeout(queryTimeout);
+      }
+      params.bind(statement);
+      return statement;
+    }
+    catch(SQLException | RuntimeException e)
+    {
+      statement.close();
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set, the result set must not be advanced.
+ *
+ * @param <T> row type
+ * @author baso10
+ */
+@FunctionalInterface
+public interface RowMapper<T>
+{
+
+  /**
+   * @param rs result set positioned on the row
+   * @param rowNum zero based row number
+   * @return mapped row
+   * @throws SQLException if a column can not be read
+   */
+  T mapRow(ResultSet rs, int rowNum) throws SQLException;
+
+}
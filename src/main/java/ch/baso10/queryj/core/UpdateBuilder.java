@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds <code>UPDATE table SET ... WHERE ...</code> with the same predicate methods as {@link QueryBuilder}.
+ *
+ * Values of {@link #set(String, Object)} get generated parameter names from the same sequence as the predicates, so
+ * updates built the same way render the same SQL and can be executed together with {@link QJBatch}.
+ *
+ * Unlike a query, values that can not be compared throw instead of being skipped, text is compared with <code>=</code>,
+ * nested groups must be {@link QueryBuilder#strict() strict} and an update without condition needs {@link #allRows()}.
+ *
+ * @author baso10
+ */
+public class UpdateBuilder extends WhereBuilder<UpdateBuilder>
+{
+
+  private QJTable table;
+  private final List<String> assignments = new ArrayList<>();
+  private boolean allRows;
+
+  public UpdateBuilder()
+  {
+  }
+
+  public UpdateBuilder(String paramKey)
+  {
+    super(paramKey);
+  }
+
+  public UpdateBuilder update(String tableName)
+  {
+    return update(tableName, null);
+  }
+
+  public UpdateBuilder update(String tableName, String alias)
+  {
+    this.table = new QJTable(tableName, alias);
+    modified();
+    return this;
+  }
+
+  /**
+   * Adds <code>column = :p</code>.
+   *
+   * @param column column
+   * @param value value, null sets the column to NULL
+   * @return this
+   */
+  public UpdateBuilder set(String column, Object value)
+  {
+    String param = nextParamName();
+    this.assignments.add(column + " = :" + param);
+    this.params.add(new QJParam(param, value));
+    modified();
+    return this;
+  }
+
+  /**
+   * Adds a raw assignment, e.g. <code>"version = version + 1"</code>.
+   *
+   * @param assignment assignment
+   * @param params parameters used by the assignment
+   * @return this
+   */
+  public UpdateBuilder setExpression(String assignment, QJParam... params)
+  {
+    this.assignments.add(assignment);
+    this.params.addAll(Arrays.asList(params));
+    modified();
+    return this;
+  }
+
+  /**
+   * Allows rendering without a condition, otherwise a statement without WHERE clause throws IllegalStateException so
+   * that skipped conditions can not update every row.
+   *
+   * @return this
+   */
+  public UpdateBuilder allRows()
+  {
+    this.allRows = true;
+    modified();
+    return this;
+  }
+
+  /**
+   * Values that would be skipped throw and text is compared with <code>=</code>, see {@link WhereBuilder#isStrict()}.
+   */
+  @Override
+  boolean isStrict()
+  {
+    return true;
+  }
+
+  @Override
+  Set<String> getTables()
+  {
+    return table == null ? Collections.<String>emptySet() : Collections.singleton(table.getName());
+  }
+
+  @Override
+  protected StringBuilder render(StringBuilder sb)
+  {
+    if(table == null)
+    {
+      throw new IllegalStateException("No table to update");
+    }
+    if(assignments.isEmpty())
+    {
+      throw new IllegalStateException("No columns to update: " + table.getName());
+    }
+    sb.append("UPDATE ").append(table.getName());
+    if(table.getAlias() != null)
+    {
+      sb.append(" ").append(table.getAlias());
+    }
+    sb.append(" SET ");
+    for(int i = 0; i < assignments.size(); i++)
+    {
+      if(i > 0)
+      {
+        sb.append(", ");
+      }
+      sb.append(assignments.get(i));
+    }
+    if(!this.where.isEmpty())
+    {
+      sb.append(" WHERE ");
+      appendWhereSql(sb);
+    }
+    else if(!allRows)
+    {
+      throw new IllegalStateException("No condition to update " + table.getName() + ", call allRows() to update every row");
+    }
+    return sb;
+  }
+
+  @Override
+  public int estimateLength()
+  {
+    int length = 32 + estimateWhereLength();
+    if(table != null)
+    {
+      length += table.getName().length() + (table.getAlias() == null ? 0 : table.getAlias().length());
+    }
+    for(String assignment : assignments)
+    {
+      length += assignment.length() + 2;
+    }
+    return length;
+  }
+
+}
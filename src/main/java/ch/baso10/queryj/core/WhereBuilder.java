@@ -0,0 +1,1185 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Predicate and parameter handling shared by {@link QueryBuilder}, {@link UpdateBuilder} and {@link DeleteBuilder}.
+ * The rendered SQL and parameters are memoized until the builder or one of its nested groups is modified.
+ *
+ * @param <B> concrete builder type returned by the fluent methods
+ * @author baso10
+ */
+public abstract class WhereBuilder<B extends WhereBuilder<B>>
+{
+
+  private static final AtomicLong VERSIONS = new AtomicLong();
+
+  final List<QJWhere> where = new ArrayList<>();
+  final List<QJParam> params = new ArrayList<>();
+  private int paramIndex = 1;
+  private String paramKey = "p";
+  private QJInvalidValueHandler invalidValueHandler = QJInvalidValueHandler.IGNORE;
+  private int maxInListSize = 64;
+  private QJDialect dialect = QJDialects.getDefault();
+  private boolean strict;
+  private Map<List<Object>, QJParam> valueParams;
+  private long version;
+  private long renderedStamp = -1;
+  private String sql;
+  private QJPositionalSql positional;
+  private QJParam[] positionalBindings;
+  private List<QJParam> allParams;
+  private Map<String, Object> paramsMap;
+
+  protected WhereBuilder()
+  {
+  }
+
+  protected WhereBuilder(String paramKey)
+  {
+    this.paramKey = paramKey;
+  }
+
+  public B andWhere(String where, QJParam... params)
+  {
+    this.where.add(new QJWhere("AND", where));
+    if(params != null)
+    {
+      this.params.addAll(Arrays.asList(params));
+    }
+    modified();
+    return self();
+  }
+
+  public B andWhere(QueryBuilder where, QJParam... params)
+  {
+    checkGroup(where);
+    this.where.add(new QJWhere("AND", where));
+    if(params != null)
+    {
+      this.params.addAll(Arrays.asList(params));
+    }
+    modified();
+    return self();
+  }
+
+  public B orWhere(String where, QJParam... params)
+  {
+    this.where.add(new QJWhere("OR", where));
+    if(params != null)
+    {
+      this.params.addAll(Arrays.asList(params));
+    }
+    modified();
+    return self();
+  }
+
+  public B orWhere(QueryBuilder where, QJParam... params)
+  {
+    checkGroup(where);
+    this.where.add(new QJWhere("OR", where));
+    if(params != null)
+    {
+      this.params.addAll(Arrays.asList(params));
+    }
+    modified();
+    return self();
+  }
+
+  /**
+   * Adds a generated predicate. It is atomic, i.e. it can be moved between AND and OR chains without parentheses, and
+   * it owns its parameters.
+   */
+  void addPredicate(String condition, QJParam... params)
+  {
+    this.where.add(new QJWhere("AND", condition, params));
+    for(QJParam param : params)
+    {
+      if(valueParams == null || !containsIdentical(this.params, param))
+      {
+        this.params.add(param);
+      }
+    }
+  }
+
+  /**
+   * Adds the condition followed by the name of the parameter, which may be replaced by a reused one.
+   */
+  private void addBoundPredicate(String condition, QJParam param)
+  {
+    QJParam bound = reuse(param);
+    addPredicate(condition + bound.getName(), bound);
+  }
+
+  /**
+   * @return the given parameter, or the one bound earlier to a value of the same type and equal value if
+   * {@link #reuseParams(boolean)} is enabled
+   */
+  QJParam reuse(QJParam param)
+  {
+    if(valueParams == null)
+    {
+      return param;
+    }
+    Object value = param.getValue();
+    if(value == null || value instanceof Object[])
+    {
+      return param;
+    }
+    QJParam bound = valueParams.putIfAbsent(Arrays.asList(value.getClass(), value), param);
+    return bound == null ? param : bound;
+  }
+
+  /**
+   * @return next generated parameter name, e.g. <code>p1</code>
+   */
+  String nextParamName()
+  {
+    return paramKey + paramIndex++;
+  }
+
+  /**
+   * Rewrites the predicates into a shorter equivalent form. Groups with a single predicate are unwrapped, AND groups
+   * are merged into a parent that is a pure AND chain or has no other predicate, and repeated predicates of a pure
+   * chain are dropped together with their parameters. OR and mixed groups keep their parentheses, so predicates added
+   * after normalizing combine with them as before. Only predicates generated by <code>andCompare</code>,
+   * <code>andIn</code> and <code>seekAfter</code> and nested groups are moved or dropped, conditions passed as text
+   * may contain operators of any precedence and stay where they are. Nested groups are copied, not modified.
+   *
+   * @return this
+   */
+  public B normalize()
+  {
+    String chain = chainOperator(where);
+    List<QJWhere> result = new ArrayList<>(where.size());
+    List<QJParam> resultParams = new ArrayList<>(params);
+    for(QJWhere whereObj : where)
+    {
+      QueryBuilder group = whereObj.getQuery();
+      if(group == null)
+      {
+        result.add(whereObj);
+        continue;
+      }
+      QueryBuilder copy = new QueryBuilder();
+      group.copyWhereTo(copy);
+      copy.normalize();
+      List<QJWhere> groupWhere = copy.where;
+      if(groupWhere.size() == 1 && isMovable(groupWhere.get(0)))
+      {
+        result.add(groupWhere.get(0).withOperator(whereObj.getOperator()));
+        resultParams.addAll(copy.params);
+      }
+      else if(("".equals(chain) || "AND".equals(chain)) && "AND".equals(chainOperator(groupWhere))
+              && allMovable(groupWhere))
+      {
+        result.add(groupWhere.get(0).withOperator(whereObj.getOperator()));
+        result.addAll(groupWhere.subList(1, groupWhere.size()));
+        resultParams.addAll(copy.params);
+      }
+      else
+      {
+        result.add(new QJWhere(whereObj.getOperator(), copy));
+      }
+    }
+    // merging a group that was the only predicate can leave a mixed chain, only a pure chain may drop repeats
+    if(chainOperator(result) != null)
+    {
+      dropDuplicates(result, resultParams);
+    }
+    where.clear();
+    where.addAll(result);
+    params.clear();
+    params.addAll(resultParams);
+    modified();
+    return self();
+  }
+
+  /**
+   * @return AND or OR if all predicates after the first are joined with it, null for a mixed or empty chain
+   */
+  private static String chainOperator(List<QJWhere> chain)
+  {
+    if(chain.isEmpty())
+    {
+      return null;
+    }
+    if(chain.size() == 1)
+    {
+      return "";
+    }
+    String operator = chain.get(1).getOperator();
+    for(int i = 2; i < chain.size(); i++)
+    {
+      if(!operator.equals(chain.get(i).getOperator()))
+      {
+        return null;
+      }
+    }
+    return operator;
+  }
+
+  private static boolean isMovable(QJWhere whereObj)
+  {
+    return whereObj.isAtomic() || whereObj.getQuery() != null;
+  }
+
+  private static boolean allMovable(List<QJWhere> chain)
+  {
+    for(QJWhere whereObj : chain)
+    {
+      if(!isMovable(whereObj))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void dropDuplicates(List<QJWhere> chain, List<QJParam> chainParams)
+  {
+    Set<List<Object>> seen = new HashSet<>();
+    List<QJParam> dropped = new ArrayList<>();
+    Iterator<QJWhere> it = chain.iterator();
+    while(it.hasNext())
+    {
+      QJWhere whereObj = it.next();
+      if(whereObj.isAtomic() && !seen.add(predicateKey(whereObj)))
+      {
+        it.remove();
+        dropped.addAll(Arrays.asList(whereObj.getParams()));
+      }
+    }
+    for(QJParam param : dropped)
+    {
+      if(!isReferenced(chain, param))
+      {
+        removeIdentical(chainParams, param);
+      }
+    }
+  }
+
+  /**
+   * Reused parameters are shared by several predicates.
+   */
+  private static boolean isReferenced(List<QJWhere> chain, QJParam param)
+  {
+    for(QJWhere whereObj : chain)
+    {
+      if(whereObj.isAtomic() && containsIdentical(Arrays.asList(whereObj.getParams()), param))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsIdentical(List<QJParam> list, QJParam param)
+  {
+    for(QJParam other : list)
+    {
+      if(other == param)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void removeIdentical(List<QJParam> list, QJParam param)
+  {
+    for(int i = 0; i < list.size(); i++)
+    {
+      if(list.get(i) == param)
+      {
+        list.remove(i);
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return condition with the parameter names replaced by their position, followed by the parameter values
+   */
+  private static List<Object> predicateKey(QJWhere whereObj)
+  {
+    QJParam[] predicateParams = whereObj.getParams();
+    String condition = whereObj.getCondition();
+    List<Object> key = new ArrayList<>(predicateParams.length + 1);
+    key.add(condition);
+    for(int i = 0; i < predicateParams.length; i++)
+    {
+      condition = replaceParam(condition, predicateParams[i].getName(), "?" + i);
+      Object value = predicateParams[i].getValue();
+      key.add(value instanceof Object[] ? Arrays.asList((Object[]) value) : value);
+    }
+    key.set(0, condition);
+    return key;
+  }
+
+  private static String replaceParam(String condition, String name, String replacement)
+  {
+    StringBuilder sb = new StringBuilder(condition.length());
+    int from = 0;
+    int index;
+    while((index = condition.indexOf(":" + name, from)) >= 0)
+    {
+      int end = index + name.length() + 1;
+      boolean whole = end >= condition.length() || !Character.isJavaIdentifierPart(condition.charAt(end));
+      sb.append(condition, from, index).append(whole ? ":" + replacement : condition.substring(index, end));
+      from = end;
+    }
+    return sb.append(condition, from, condition.length()).toString();
+  }
+
+  /**
+   * @return names of the tables the statement reads or writes, the tags of {@link QJResultCache}
+   */
+  Set<String> getTables()
+  {
+    return Collections.emptySet();
+  }
+
+  /**
+   * Copies predicates, parameters and the parameter name sequence, nested groups are shared.
+   */
+  void copyWhereTo(WhereBuilder<?> target)
+  {
+    target.where.addAll(this.where);
+    target.params.addAll(this.params);
+    copySettingsTo(target);
+    if(this.valueParams != null)
+    {
+      target.valueParams.putAll(this.valueParams);
+    }
+  }
+
+  /**
+   * Copies the settings and continues the parameter name sequence, so names generated by the target do not clash.
+   */
+  void copySettingsTo(WhereBuilder<?> target)
+  {
+    target.paramKey = this.paramKey;
+    target.paramIndex = this.paramIndex;
+    target.invalidValueHandler = this.invalidValueHandler;
+    target.maxInListSize = this.maxInListSize;
+    target.dialect = this.dialect;
+    target.strict = this.strict;
+    target.valueParams = this.valueParams == null ? null : new HashMap<>();
+    target.modified();
+  }
+
+  /**
+   * Sets the dialect, by default {@link QJDialects#getDefault()} at construction. Conditions are rendered when they are
+   * added, so the dialect has to be set before adding conditions and nested groups should use the same dialect.
+   *
+   * @param dialect dialect
+   * @return this
+   * @throws IllegalStateException if conditions were already added with another dialect
+   */
+  public B dialect(QJDialect dialect)
+  {
+    if(dialect == null)
+    {
+      throw new IllegalArgumentException("dialect must not be null");
+    }
+    if(dialect != this.dialect && !where.isEmpty())
+    {
+      throw new IllegalStateException("Set the dialect before adding conditions, current dialect: " + this.dialect);
+    }
+    this.dialect = dialect;
+    modified();
+    return self();
+  }
+
+  public QJDialect getDialect()
+  {
+    return dialect;
+  }
+
+  /**
+   * When enabled, values generated by <code>andCompare</code> and <code>seekAfter</code> of the same type and equal to
+   * a value bound earlier by this builder reuse its parameter, e.g. one search term compared with several columns is
+   * sent once. A reused value still consumes its index, so the names of later parameters do not depend on which values
+   * were equal. IN list slots, parameters passed explicitly and nested groups are not affected.
+   *
+   * @param reuse true to reuse parameters of equal values
+   * @return this
+   */
+  public B reuseParams(boolean reuse)
+  {
+    if(!reuse)
+    {
+      valueParams = null;
+    }
+    else if(valueParams == null)
+    {
+      valueParams = new HashMap<>();
+    }
+    return self();
+  }
+
+  public B addParam(String name, Object value)
+  {
+    this.params.add(QJParam.p(name, value));
+    modified();
+    return self();
+  }
+
+  /**
+   * Drops the memoized SQL and parameters, called by every mutator.
+   */
+  protected void modified()
+  {
+    version = 0;
+    renderedStamp = -1;
+  }
+
+  /**
+   * A modified builder draws a new version from a global counter on the next call, so the largest version of the
+   * builder and its nested groups grows with every mutation of any of them, also when a group is replaced by a copy.
+   */
+  long stamp()
+  {
+    long stamp = version;
+    if(stamp == 0)
+    {
+      stamp = VERSIONS.incrementAndGet();
+      version = stamp;
+    }
+    for(QJWhere whereObj : where)
+    {
+      if(whereObj.getQuery() != null)
+      {
+        stamp = Math.max(stamp, whereObj.getQuery().stamp());
+      }
+    }
+    return stamp;
+  }
+
+  protected void validate()
+  {
+    long stamp = stamp();
+    if(stamp != renderedStamp)
+    {
+      sql = null;
+      positional = null;
+      positionalBindings = null;
+      allParams = null;
+      paramsMap = null;
+      clearRendered();
+      renderedStamp = stamp;
+    }
+  }
+
+  /**
+   * Called when the memoized SQL is dropped, subclasses clear their own render caches.
+   */
+  protected void clearRendered()
+  {
+  }
+
+  /**
+   * The SQL is rendered once and memoized until the builder or one of its nested groups is modified.
+   *
+   * @return SQL with <code>:name</code> placeholders
+   */
+  public String getSql()
+  {
+    validate();
+    if(sql == null)
+    {
+      QJListener listener = QJInstrumentation.getListener();
+      long start = listener == null ? 0 : System.nanoTime();
+      StringBuilder sb = QJSqlBuffer.acquire(estimateLength());
+      sql = QJSqlBuffer.release(render(sb));
+      if(listener != null)
+      {
+        long nanos = System.nanoTime() - start;
+        listener.rendered(getPositional().getFingerprint(), sql, nanos, getParamsList().size());
+      }
+    }
+    return sql;
+  }
+
+  /**
+   * Takes the SQL rendered by a builder of the same shape, see {@link QJStatementCache}.
+   */
+  void memoizeSql(String rendered)
+  {
+    validate();
+    if(sql == null)
+    {
+      sql = rendered;
+    }
+  }
+
+  /**
+   * Appends the SQL to a caller supplied buffer. A memoized SQL is copied, otherwise the query is rendered straight
+   * into the buffer without an intermediate <code>String</code>.
+   *
+   * @param sb target buffer
+   * @return the buffer
+   */
+  public StringBuilder appendSql(StringBuilder sb)
+  {
+    validate();
+    if(sql != null)
+    {
+      return sb.append(sql);
+    }
+    sb.ensureCapacity(sb.length() + estimateLength());
+    return render(sb);
+  }
+
+  /**
+   * @param out target
+   * @param <A> appendable type
+   * @return the target
+   * @see #appendSql(StringBuilder)
+   */
+  public <A extends Appendable> A appendSql(A out)
+  {
+    if(out instanceof StringBuilder)
+    {
+      appendSql((StringBuilder) out);
+      return out;
+    }
+    try
+    {
+      validate();
+      if(sql != null)
+      {
+        out.append(sql);
+      }
+      else
+      {
+        StringBuilder sb = QJSqlBuffer.acquire(estimateLength());
+        out.append(render(sb));
+        QJSqlBuffer.clear(sb);
+      }
+      return out;
+    }
+    catch(IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Renders the statement into the buffer, called at most once per modification by {@link #getSql()}.
+   */
+  protected abstract StringBuilder render(StringBuilder sb);
+
+  /**
+   * Cheap upper estimate of the SQL length, used to size render buffers.
+   *
+   * @return estimated number of characters of {@link #getSql()}
+   */
+  public abstract int estimateLength();
+
+  /**
+   * @return read-only parameters of the builder and its nested groups, memoized like {@link #getSql()}
+   */
+  public Map<String, Object> getParams()
+  {
+    validate();
+    if(paramsMap == null)
+    {
+      paramsMap = toParamMap(getParamsList());
+    }
+    return paramsMap;
+  }
+
+  /**
+   * The first parameter wins if a name is used more than once.
+   */
+  private static Map<String, Object> toParamMap(List<QJParam> list)
+  {
+    String[] names = new String[list.size()];
+    Object[] values = new Object[list.size()];
+    Map<String, Integer> index = list.size() > 8 ? new HashMap<>() : null;
+    int size = 0;
+    for(QJParam param : list)
+    {
+      String name = param.getName();
+      boolean duplicate = false;
+      if(index != null)
+      {
+        duplicate = index.putIfAbsent(name, size) != null;
+      }
+      else
+      {
+        for(int i = 0; i < size && !duplicate; i++)
+        {
+          duplicate = names[i].equals(name);
+        }
+      }
+      if(!duplicate)
+      {
+        names[size] = name;
+        values[size] = param.getValue();
+        size++;
+      }
+    }
+    if(size < names.length)
+    {
+      names = Arrays.copyOf(names, size);
+      values = Arrays.copyOf(values, size);
+    }
+    return new QJParamMap(names, values, index);
+  }
+
+  /**
+   * @return translation of {@link #getSql()}, memoized like the SQL
+   */
+  QJPositionalSql getPositional()
+  {
+    String named = getSql();
+    if(positional == null)
+    {
+      positional = QJPositionalSql.parse(named);
+    }
+    return positional;
+  }
+
+  /**
+   * @return SQL with JDBC <code>?</code> placeholders, use with {@link #getPositionalParams()}
+   */
+  public String getPositionalSql()
+  {
+    return getPositional().getSql();
+  }
+
+  /**
+   * @return parameter values in <code>?</code> order of {@link #getPositionalSql()}
+   */
+  public Object[] getPositionalParams()
+  {
+    return getPositional().bind(getParams());
+  }
+
+  /**
+   * @return parameters in <code>?</code> order of {@link #getPositionalSql()}, memoized like the SQL
+   */
+  QJBindings getBindings()
+  {
+    QJPositionalSql translated = getPositional();
+    if(positionalBindings == null)
+    {
+      Map<String, QJParam> byName = new HashMap<>();
+      for(QJParam param : getParamsList())
+      {
+        byName.putIfAbsent(param.getName(), param);
+      }
+      QJParam[] bound = new QJParam[translated.getSlotCount()];
+      for(int i = 0; i < bound.length; i++)
+      {
+        String name = translated.getSlotName(i);
+        QJParam param = byName.get(name);
+        if(param == null)
+        {
+          param = byName.get(":" + name);
+        }
+        if(param == null)
+        {
+          throw new IllegalArgumentException("No value for parameter: " + name);
+        }
+        bound[i] = param;
+      }
+      positionalBindings = bound;
+    }
+    return QJBindings.of(positionalBindings);
+  }
+
+  /**
+   * @return parameters of the builder followed by the parameters of its nested groups
+   */
+  protected List<QJParam> getParamsList()
+  {
+    validate();
+    if(allParams == null)
+    {
+      List<QJParam> list = new ArrayList<>(this.params);
+      for(QJWhere whereObj : where)
+      {
+        if(whereObj.getQuery() != null)
+        {
+          list.addAll(whereObj.getQuery().getParamsList());
+        }
+      }
+      allParams = Collections.unmodifiableList(list);
+    }
+    return allParams;
+  }
+
+  /**
+   * Renders the query once into an immutable {@link CompiledQuery}, later requests only bind new values.
+   *
+   * @return compiled query with the current SQL and parameter values
+   */
+  public CompiledQuery compile()
+  {
+    return new CompiledQuery(getSql(), getParamsList());
+  }
+
+  void addWhereShape(List<Object> parts)
+  {
+    parts.add(where.size());
+    for(QJWhere whereObj : where)
+    {
+      parts.add(whereObj.getOperator());
+      if(whereObj.getQuery() != null)
+      {
+        whereObj.getQuery().addWhereShape(parts);
+      }
+      else
+      {
+        parts.add(whereObj.getCondition());
+      }
+    }
+  }
+
+  protected String getWhereSql()
+  {
+    return appendWhereSql(new StringBuilder(estimateWhereLength())).toString();
+  }
+
+  /**
+   * Nested groups are rendered straight into the same buffer.
+   */
+  StringBuilder appendWhereSql(StringBuilder sb)
+  {
+    boolean first = true;
+    for(QJWhere whereObj : where)
+    {
+      if(!first)
+      {
+        sb.append(' ').append(whereObj.getOperator()).append(' ');
+      }
+      QueryBuilder subQuery = whereObj.getQuery();
+      if(subQuery != null)
+      {
+        sb.append('(');
+        subQuery.appendWhereSql(sb);
+        sb.append(')');
+      }
+      else
+      {
+        sb.append(whereObj.getCondition());
+      }
+      first = false;
+    }
+    return sb;
+  }
+
+  int estimateWhereLength()
+  {
+    int length = 0;
+    for(QJWhere whereObj : where)
+    {
+      QueryBuilder subQuery = whereObj.getQuery();
+      length += 5 + (subQuery != null ? 2 + subQuery.estimateWhereLength() : whereObj.getCondition().length());
+    }
+    return length;
+  }
+
+  /**
+   * Sets the handler for <code>andCompare</code> values that can not be converted to the requested number type, by
+   * default such predicates are skipped silently.
+   *
+   * @param invalidValueHandler handler
+   * @return this
+   */
+  public B onInvalidValue(QJInvalidValueHandler invalidValueHandler)
+  {
+    this.invalidValueHandler = invalidValueHandler == null ? QJInvalidValueHandler.IGNORE : invalidValueHandler;
+    return self();
+  }
+
+  public B andCompare(String field, int value)
+  {
+    return andCompare(field, QJOperator.EQ, value);
+  }
+
+  public B andCompare(String field, long value)
+  {
+    return andCompare(field, QJOperator.EQ, value);
+  }
+
+  public B andCompare(String field, double value)
+  {
+    return andCompare(field, QJOperator.EQ, value);
+  }
+
+  public B andCompare(String field, QJOperator operator, int value)
+  {
+    String param = nextParamName();
+    return andCompare(field, operator, reuse(new QJIntParam(param, value)));
+  }
+
+  public B andCompare(String field, QJOperator operator, long value)
+  {
+    String param = nextParamName();
+    return andCompare(field, operator, reuse(new QJLongParam(param, value)));
+  }
+
+  public B andCompare(String field, QJOperator operator, double value)
+  {
+    String param = nextParamName();
+    return andCompare(field, operator, reuse(new QJDoubleParam(param, value)));
+  }
+
+  private B andCompare(String field, QJOperator operator, QJParam param)
+  {
+    String condition = operator == QJOperator.NE
+            ? "NOT " + field + " = :" + param.getName()
+            : field + " " + operator.getSymbol() + " :" + param.getName();
+    addPredicate(condition, param);
+    modified();
+    return self();
+  }
+
+  public B andCompare(String field, Object value)
+  {
+    return andCompare(field, value, String.class);
+  }
+  
+  public B andCompare(String fieldTableAlias, String field, Object value, Class classType)
+  {
+    return andCompare((fieldTableAlias == null ? "" : (fieldTableAlias + ".")) + field, value, classType);
+  }
+
+  public B andCompare(String field, Object value, Class classType)
+  {
+    return compare(field, value, classType, numberType(classType, value), null);
+  }
+
+  /**
+   * Like {@link #andCompare(String, Object, Class)} with the expression and type of the column.
+   *
+   * @param column column, e.g. a generated metamodel constant
+   * @param value value with optional operator prefix
+   * @return this
+   */
+  public B andCompare(QJColumn<?> column, Object value)
+  {
+    return compare(column.getExpression(), value, column.getType(), column.numberType(value), null);
+  }
+
+  /**
+   * Applies {@link #andCompare(String, Object, Class)} for all values of a form, see {@link QJFilterSpec}.
+   *
+   * @param spec registered fields
+   * @param values values by field key, may be null
+   * @return this
+   * @throws IllegalArgumentException if a key is not registered
+   */
+  public B andCompareAll(QJFilterSpec spec, Map<String, ?> values)
+  {
+    spec.apply(this, values);
+    return self();
+  }
+
+  /**
+   * @return <code>Integer</code>, <code>Long</code>, <code>Double</code> or <code>Number</code> for number comparisons
+   * like {@link #andCompare(String, Object, Class)}, null to compare text
+   */
+  static Class<?> numberType(Class<?> classType, Object value)
+  {
+    if(!Number.class.isAssignableFrom(classType) && !(value instanceof Number))
+    {
+      return null;
+    }
+    if(Integer.class.isAssignableFrom(classType) || value instanceof Integer)
+    {
+      return Integer.class;
+    }
+    if(Long.class.isAssignableFrom(classType) || value instanceof Long)
+    {
+      return Long.class;
+    }
+    if(Double.class.isAssignableFrom(classType) || value instanceof Double)
+    {
+      return Double.class;
+    }
+    return Number.class;
+  }
+
+  /**
+   * @param numberType result of {@link #numberType(Class, Object)}
+   * @param operators allowed operator prefixes, null for all, values with another operator are invalid
+   */
+  B compare(String field, Object value, Class<?> classType, Class<?> numberType, Set<QJOperator> operators)
+  {
+    if(value == null || "".equals(value) || (value instanceof String && "".equals(((String) value).trim())))
+    {
+      if(isStrict())
+      {
+        throw new IllegalArgumentException("No value for " + field);
+      }
+      return self();
+    }
+
+    String param = nextParamName();
+    String operation = null;
+    if(value instanceof String)
+    {
+      String stringValue = (String) value;
+      QJOperator operator = QJOperator.scan(stringValue);
+      if(operator != null)
+      {
+        if(operators != null && !operators.contains(operator))
+        {
+          invalidValue(field, value, classType);
+          return self();
+        }
+        operation = operator.getSymbol();
+        value = stringValue.substring(operation.length());
+      }
+    }
+
+    if(numberType != null)
+    {
+      Object number = value;
+      if(numberType == Integer.class)
+      {
+        number = QJCoercion.toInteger(value);
+      }
+      else if(numberType == Long.class)
+      {
+        number = QJCoercion.toLong(value);
+      }
+      else if(numberType == Double.class)
+      {
+        number = QJCoercion.toDouble(value);
+      }
+      if(number == null)
+      {
+        invalidValue(field, value, classType);
+        return self();
+      }
+      String not = "<>".equals(operation) ? "NOT " : "";
+      if(operation == null || "<>".equals(operation))
+      {
+        operation = "=";
+      }
+      addBoundPredicate(not + field + " " + operation + " :", new QJParam(param, number));
+    }
+    else
+    {
+      String stringValue = "" + value;
+      if(operation == null && isStrict())
+      {
+        operation = "=";
+      }
+      //contains by default
+      if(operation == null)
+      {
+        if(stringValue.contains("*"))
+        {
+          //manual like %
+          stringValue = stringValue.replace('*', '%');
+        }
+        else
+        {
+          stringValue = "%" + stringValue + "%";
+        }
+        addBoundPredicate(field + " LIKE :", new QJParam(param, stringValue));
+      }
+      else if("=".equals(operation))
+      {
+        addBoundPredicate(field + " = :", new QJParam(param, stringValue));
+      }
+      else if("<>".equals(operation))
+      {
+        addBoundPredicate("NOT " + field + " = :", new QJParam(param, stringValue));
+      }
+      else if(">".equals(operation))
+      {
+        stringValue = "%" + stringValue;
+        addBoundPredicate(field + " LIKE :", new QJParam(param, stringValue));
+      }
+      else if("<".equals(operation))
+      {
+        stringValue = stringValue + "%";
+        addBoundPredicate(field + " LIKE :", new QJParam(param, stringValue));
+      }
+    }
+    modified();
+    return self();
+  }
+
+  private void invalidValue(String field, Object value, Class<?> classType)
+  {
+    invalidValueHandler.invalidValue(field, value, classType);
+    if(isStrict())
+    {
+      throw new IllegalArgumentException("Invalid value for " + field + ": " + value);
+    }
+  }
+
+  /**
+   * Statements that modify rows must not widen their condition, so in strict builders <code>andCompare</code> throws
+   * IllegalArgumentException for values it would skip (null, empty, invalid numbers or operators), a null IN list
+   * throws as well and text without operator prefix is compared with <code>=</code> instead of <code>LIKE</code>.
+   *
+   * @return true for UPDATE and DELETE builders and their groups
+   */
+  boolean isStrict()
+  {
+    return strict;
+  }
+
+  /**
+   * Switches to the strict value handling of UPDATE and DELETE builders, see {@link UpdateBuilder}. Nested groups of
+   * those builders must be strict.
+   *
+   * @return this
+   * @throws IllegalStateException if conditions were already added
+   */
+  public B strict()
+  {
+    if(!where.isEmpty())
+    {
+      throw new IllegalStateException("Call strict() before adding conditions");
+    }
+    this.strict = true;
+    return self();
+  }
+
+  private void checkGroup(QueryBuilder group)
+  {
+    if(isStrict() && !group.isStrict())
+    {
+      throw new IllegalArgumentException("Groups of UPDATE and DELETE statements must be strict, call strict() on the group");
+    }
+  }
+
+  /**
+   * Sets the largest IN list bucket, lists with more values are bound as one array parameter if the dialect supports
+   * it.
+   *
+   * @param maxInListSize largest bucket, at least 1
+   * @return this
+   * @see #andIn(String, Collection)
+   */
+  public B maxInListSize(int maxInListSize)
+  {
+    if(maxInListSize < 1)
+    {
+      throw new IllegalArgumentException("maxInListSize must be positive: " + maxInListSize);
+    }
+    this.maxInListSize = maxInListSize;
+    return self();
+  }
+
+  /**
+   * Adds <code>field IN (...)</code>. To keep the number of distinct SQL texts small, the list is padded to the next
+   * bucket size (1, 2, 4, 8, ... up to {@link #maxInListSize(int)}) by repeating the last value. Longer lists are bound
+   * as a single array parameter with <code>field = ANY(:p)</code>, or padded to the next power of two if the dialect has
+   * no array parameters. A null collection is ignored (except in UPDATE and DELETE builders), an empty one matches
+   * nothing.
+   *
+   * @param field field
+   * @param values values
+   * @return this
+   */
+  public B andIn(String field, Collection<?> values)
+  {
+    if(values == null)
+    {
+      if(isStrict())
+      {
+        throw new IllegalArgumentException("No values for " + field);
+      }
+      return self();
+    }
+    if(values.isEmpty())
+    {
+      addPredicate(dialect.getFalseCondition());
+    }
+    else if(values.size() > maxInListSize && dialect.supportsArrayParameters())
+    {
+      String param = nextParamName();
+      addPredicate(field + " = ANY(:" + param + ")", new QJParam(param, values.toArray()));
+    }
+    else
+    {
+      int bucket = inListBucket(values.size());
+      StringBuilder sb = new StringBuilder(field.length() + 6 + bucket * 6);
+      QJParam[] inParams = new QJParam[bucket];
+      sb.append(field).append(" IN (");
+      Object last = null;
+      int i = 0;
+      for(Object value : values)
+      {
+        inParams[i] = appendInParam(sb, i, value);
+        last = value;
+        i++;
+      }
+      for(; i < bucket; i++)
+      {
+        inParams[i] = appendInParam(sb, i, last);
+      }
+      addPredicate(sb.append(')').toString(), inParams);
+    }
+    modified();
+    return self();
+  }
+
+  private QJParam appendInParam(StringBuilder sb, int i, Object value)
+  {
+    String param = nextParamName();
+    if(i > 0)
+    {
+      sb.append(", ");
+    }
+    // every slot keeps its own name even with reuseParams, so the SQL only depends on the bucket size
+    sb.append(':').append(param);
+    return new QJParam(param, value);
+  }
+
+  private int inListBucket(int size)
+  {
+    int bucket = Integer.highestOneBit(size);
+    if(bucket < size)
+    {
+      bucket <<= 1;
+    }
+    return size > maxInListSize ? bucket : Math.min(bucket, maxInListSize);
+  }
+
+  @SuppressWarnings("unchecked")
+  private B self()
+  {
+    return (B) this;
+  }
+}
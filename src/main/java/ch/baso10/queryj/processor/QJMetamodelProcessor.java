@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.processor;
+
+import ch.baso10.queryj.core.QJColumnName;
+import ch.baso10.queryj.core.QJEntity;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the metamodel class <code>Q&lt;SimpleName&gt;</code> for every {@link QJEntity}:
+ *
+ * <pre>
+ * public final class QCustomer
+ * {
+ *   public static final String TABLE = "Customer";
+ *   public static final String ALIAS = "c";
+ *   public static final QJColumn&lt;java.lang.Integer&gt; ID = new QJColumn&lt;&gt;(ALIAS, "id", java.lang.Integer.class);
+ *   public static final QJColumn&lt;java.lang.String&gt; FIRST_NAME = new QJColumn&lt;&gt;(ALIAS, "first_name",
+ *           java.lang.String.class);
+ * }
+ * </pre>
+ *
+ * Constant names are the field names in upper snake case, primitive field types are boxed. Registered in
+ * <code>META-INF/services</code>, so it runs whenever the library is on the compile classpath.
+ *
+ * @author baso10
+ */
+@SupportedAnnotationTypes("ch.baso10.queryj.core.QJEntity")
+public class QJMetamodelProcessor extends AbstractProcessor
+{
+
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+  {
+    for(Element element : roundEnv.getElementsAnnotatedWith(QJEntity.class))
+    {
+      if(element.getKind() != ElementKind.CLASS)
+      {
+        error("@QJEntity is only supported on classes", element);
+        continue;
+      }
+      TypeElement type = (TypeElement) element;
+      try
+      {
+        generate(type);
+      }
+      catch(IOException ex)
+      {
+        error("Could not write the metamodel of " + type.getQualifiedName() + ": " + ex.getMessage(), type);
+      }
+    }
+    return true;
+  }
+
+  private void generate(TypeElement type) throws IOException
+  {
+    QJEntity entity = type.getAnnotation(QJEntity.class);
+    String table = entity.table().isEmpty() ? type.getSimpleName().toString() : entity.table();
+    String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    String className = "Q" + type.getSimpleName();
+
+    Map<String, VariableElement> constants = new LinkedHashMap<>();
+    for(VariableElement field : columnFields(type))
+    {
+      String constant = constantName(field.getSimpleName().toString());
+      if(constant.equals("TABLE") || constant.equals("ALIAS") || constants.containsKey(constant))
+      {
+        error("Duplicate metamodel constant " + constant, field);
+        return;
+      }
+      constants.put(constant, field);
+    }
+
+    String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+    try(PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()))
+    {
+      if(!packageName.isEmpty())
+      {
+        out.println("package " + packageName + ";");
+        out.println();
+      }
+      out.println("import ch.baso10.queryj.core.QJColumn;");
+      out.println();
+      out.println("/**");
+      out.println(" * Metamodel of {@link " + type.getQualifiedName() + "}, generated by "
+              + QJMetamodelProcessor.class.getSimpleName() + ".");
+      out.println(" */");
+      out.println("public final class " + className);
+      out.println("{");
+      out.println();
+      out.println("  public static final String TABLE = " + literal(table) + ";");
+      out.println("  public static final String ALIAS = " + literal(entity.alias()) + ";");
+      for(Map.Entry<String, VariableElement> constant : constants.entrySet())
+      {
+        VariableElement field = constant.getValue();
+        QJColumnName columnName = field.getAnnotation(QJColumnName.class);
+        String column = columnName == null ? field.getSimpleName().toString() : columnName.value();
+        String valueType = valueType(field.asType());
+        out.println("  public static final QJColumn<" + valueType + "> " + constant.getKey()
+                + " = new QJColumn<>(ALIAS, " + literal(column) + ", " + valueType + ".class);");
+      }
+      out.println();
+      out.println("  private " + className + "()");
+      out.println("  {");
+      out.println("  }");
+      out.println();
+      out.println("}");
+    }
+  }
+
+  /**
+   * @return instance fields of the type and its superclasses, superclass fields first
+   */
+  private List<VariableElement> columnFields(TypeElement type)
+  {
+    List<TypeElement> hierarchy = new ArrayList<>();
+    TypeMirror current = type.asType();
+    while(current.getKind() == TypeKind.DECLARED)
+    {
+      TypeElement element = (TypeElement) ((DeclaredType) current).asElement();
+      if(element.getQualifiedName().contentEquals("java.lang.Object"))
+      {
+        break;
+      }
+      hierarchy.add(element);
+      current = element.getSuperclass();
+    }
+    Collections.reverse(hierarchy);
+    List<VariableElement> fields = new ArrayList<>();
+    for(TypeElement element : hierarchy)
+    {
+      for(VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements()))
+      {
+        Set<Modifier> modifiers = field.getModifiers();
+        if(!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT))
+        {
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  private String valueType(TypeMirror type)
+  {
+    if(type.getKind().isPrimitive())
+    {
+      return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+    }
+    return processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  /**
+   * @return e.g. <code>FIRST_NAME</code> for <code>firstName</code>
+   */
+  static String constantName(String fieldName)
+  {
+    StringBuilder sb = new StringBuilder(fieldName.length() + 4);
+    for(int i = 0; i < fieldName.length(); i++)
+    {
+      char c = fieldName.charAt(i);
+      char previous = i > 0 ? fieldName.charAt(i - 1) : '_';
+      if(Character.isUpperCase(c) && !Character.isUpperCase(previous) && previous != '_')
+      {
+        sb.append('_');
+      }
+      sb.append(Character.toUpperCase(c));
+    }
+    return sb.toString();
+  }
+
+  private static String literal(String value)
+  {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private void error(String message, Element element)
+  {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+}
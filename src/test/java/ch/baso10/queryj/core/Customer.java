@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Entity for the generated metamodel <code>QCustomer</code>.
+ *
+ * @author baso10
+ */
+@QJEntity(table = "customer", alias = "c")
+public class Customer extends BaseEntity
+{
+
+  private static final int MAX_NAME = 100;
+
+  @QJColumnName("first_name")
+  private String firstName;
+  private Integer age;
+  private BigDecimal balance;
+  private boolean active;
+  private List<String> tags;
+  private transient String display;
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+
+/**
+ * In-memory H2 database for executor tests, counts the connections that are still open.
+ */
+class H2DataSource
+{
+
+  final AtomicInteger open = new AtomicInteger();
+  final AtomicInteger opened = new AtomicInteger();
+  final DataSource dataSource;
+  private final Connection keepAlive;
+
+  H2DataSource(String name, String... setup) throws SQLException
+  {
+    JdbcDataSource h2 = new JdbcDataSource();
+    h2.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=0");
+    keepAlive = h2.getConnection();
+    try(Statement statement = keepAlive.createStatement())
+    {
+      for(String sql : setup)
+      {
+        statement.execute(sql);
+      }
+    }
+    dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]
+    {
+      DataSource.class
+    }, (proxy, method, args) ->
+    {
+      Object result = invoke(method, h2, args);
+      if(result instanceof Connection)
+      {
+        open.incrementAndGet();
+        opened.incrementAndGet();
+        return track((Connection) result);
+      }
+      return result;
+    });
+  }
+
+  private Connection track(Connection connection)
+  {
+    AtomicInteger closed = new AtomicInteger();
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]
+    {
+      Connection.class
+    }, (proxy, method, args) ->
+    {
+      if("close".equals(method.getName()) && closed.getAndIncrement() == 0)
+      {
+        open.decrementAndGet();
+      }
+      return invoke(method, connection, args);
+    });
+  }
+
+  private static Object invoke(Method method, Object target, Object[] args) throws Throwable
+  {
+    try
+    {
+      return method.invoke(target, args);
+    }
+    catch(InvocationTargetException e)
+    {
+      throw e.getCause();
+    }
+  }
+
+  void close() throws SQLException
+  {
+    keepAlive.close();
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAsync
+{
+
+  private H2DataSource db;
+  private QueryExecutor executor;
+
+  @Before
+  public void setUp() throws SQLException
+  {
+    db = new H2DataSource("async", "CREATE TABLE item (id INT PRIMARY KEY)", "INSERT INTO item SELECT x FROM SYSTEM_RANGE(1, 10)");
+    executor = new QueryExecutor(db.dataSource);
+  }
+
+  @After
+  public void tearDown() throws SQLException
+  {
+    db.close();
+  }
+
+  @Test
+  public void testParallel() throws Exception
+  {
+    CyclicBarrier barrier = new CyclicBarrier(3);
+    List<CompletableFuture<List<Integer>>> futures = new ArrayList<>();
+    for(int i = 1; i <= 3; i++)
+    {
+      futures.add(executor.executeAsync(new QueryBuilder().from("item", "t").andCompare("t.id", i), (rs, rowNum) ->
+      {
+        try
+        {
+          barrier.await(10, TimeUnit.SECONDS);
+        }
+        catch(Exception e)
+        {
+          throw new SQLException("not parallel", e);
+        }
+        return rs.getInt(1);
+      }));
+    }
+    for(int i = 0; i < 3; i++)
+    {
+      assertEquals(Arrays.asList(i + 1), futures.get(i).get(10, TimeUnit.SECONDS));
+    }
+    assertEquals(0, db.open.get());
+  }
+
+  @Test
+  public void testMaxConcurrency() throws Exception
+  {
+    executor.asyncExecutor(QJAsync.boundedPool(8)).maxConcurrency(2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger max = new AtomicInteger();
+    List<CompletableFuture<List<Integer>>> futures = new ArrayList<>();
+    for(int i = 0; i < 8; i++)
+    {
+      futures.add(executor.executeAsync(new QueryBuilder().from("item").limit(1), (rs, rowNum) ->
+      {
+        max.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try
+        {
+          Thread.sleep(20);
+        }
+        catch(InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        return rowNum;
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+    assertTrue(max.get() <= 2);
+  }
+
+  @Test
+  public void testFailure() throws Exception
+  {
+    CompletableFuture<List<Integer>> future = executor.executeAsync(new QueryBuilder().from("missing"), (rs, rowNum) -> rowNum);
+    try
+    {
+      future.get(10, TimeUnit.SECONDS);
+      fail();
+    }
+    catch(ExecutionException e)
+    {
+      assertTrue(e.getCause() instanceof SQLException);
+    }
+  }
+
+  @Test
+  public void testUpdate() throws Exception
+  {
+    UpdateBuilder update = new UpdateBuilder().update("item").setExpression("id = id + 100").andCompare("id", QJOperator.LE, 4);
+    assertEquals(Integer.valueOf(4), executor.updateAsync(update).get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testRenderedOnCallingThread() throws Exception
+  {
+    List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    QJInstrumentation.setListener(new QJListener()
+    {
+      @Override
+      public void rendered(String fingerprint, String sql, long nanos, int paramCount)
+      {
+        threads.add(Thread.currentThread());
+      }
+    });
+    try
+    {
+      executor.executeAsync(new QueryBuilder().from("item", "t").andCompare("t.id", 1), (rs, rowNum) -> rowNum)
+              .get(10, TimeUnit.SECONDS);
+      executor.updateAsync(new DeleteBuilder().from("item").andCompare("id", 1)).get(10, TimeUnit.SECONDS);
+    }
+    finally
+    {
+      QJInstrumentation.setListener(null);
+    }
+    assertEquals(2, threads.size());
+    for(Thread thread : threads)
+    {
+      assertEquals(Thread.currentThread(), thread);
+    }
+    CompletableFuture<Integer> invalid = executor.updateAsync(new DeleteBuilder().from("item"));
+    try
+    {
+      invalid.get(10, TimeUnit.SECONDS);
+      fail();
+    }
+    catch(ExecutionException e)
+    {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+}
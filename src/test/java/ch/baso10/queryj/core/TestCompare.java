@@ -0,0 +1,234 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class TestCompare
+{
+
+  @Test
+  public void testOperatorScan()
+  {
+    assertEquals(QJOperator.EQ, QJOperator.scan("=a"));
+    assertEquals(QJOperator.NE, QJOperator.scan("<>a"));
+    assertEquals(QJOperator.LE, QJOperator.scan("<=a"));
+    assertEquals(QJOperator.LT, QJOperator.scan("<a"));
+    assertEquals(QJOperator.GE, QJOperator.scan(">=a"));
+    assertEquals(QJOperator.GT, QJOperator.scan(">"));
+    assertNull(QJOperator.scan("a=1"));
+    assertNull(QJOperator.scan(""));
+    assertEquals(QJOperator.GE, QJOperator.of(">="));
+    assertNull(QJOperator.of(">=1"));
+  }
+
+  @Test
+  public void testInteger()
+  {
+    String[] values =
+    {
+      "0", "-1", "+7", "2147483647", "-2147483648", "2147483648", "-2147483649", "", "-", "+", "1a", " 1", "1.0", "99999999999"
+    };
+    for(String value : values)
+    {
+      Integer expected;
+      try
+      {
+        expected = Integer.parseInt(value);
+      }
+      catch(NumberFormatException e)
+      {
+        expected = null;
+      }
+      assertEquals(value, expected, QJCoercion.toInteger(value));
+    }
+  }
+
+  @Test
+  public void testLong()
+  {
+    String[] values =
+    {
+      "0", "-1", "9223372036854775807", "-9223372036854775808", "9223372036854775808", "-9223372036854775809", "x", ""
+    };
+    for(String value : values)
+    {
+      Long expected;
+      try
+      {
+        expected = Long.parseLong(value);
+      }
+      catch(NumberFormatException e)
+      {
+        expected = null;
+      }
+      assertEquals(value, expected, QJCoercion.toLong(value));
+    }
+  }
+
+  @Test
+  public void testDouble()
+  {
+    String[] values =
+    {
+      "0", "-1.5", ".5", "5.", "1e10", "1.5E-3", " 2 ", "3d", "NaN", "-Infinity", ".", "e5", "1e", "1.2.3", "abc", ""
+    };
+    for(String value : values)
+    {
+      Double expected;
+      try
+      {
+        expected = Double.parseDouble(value);
+      }
+      catch(NumberFormatException e)
+      {
+        expected = null;
+      }
+      assertEquals(value, expected, QJCoercion.toDouble(value));
+    }
+  }
+
+  @Test
+  public void testNonString()
+  {
+    Object[] values =
+    {
+      5, -7L, 3000000000L, Long.MIN_VALUE, (short) 3, (byte) -2, 1.5f, 0.1f, 5.0, new BigInteger("12"),
+      new BigDecimal("1E+3"), new StringBuilder("42"), 'x', null
+    };
+    for(Object value : values)
+    {
+      String s = String.valueOf(value);
+      assertEquals(s, parse(s, Integer::parseInt), QJCoercion.toInteger(value));
+      assertEquals(s, parse(s, Long::parseLong), QJCoercion.toLong(value));
+      assertEquals(s, parse(s, Double::parseDouble), QJCoercion.toDouble(value));
+    }
+  }
+
+  private static Object parse(String s, Function<String, Object> parser)
+  {
+    try
+    {
+      return parser.apply(s);
+    }
+    catch(NumberFormatException e)
+    {
+      return null;
+    }
+  }
+
+  @Test
+  public void testInvalidValue()
+  {
+    List<String> invalid = new ArrayList<>();
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .onInvalidValue((field, value, type) -> invalid.add(field + ":" + value + ":" + type.getSimpleName()))
+            .andCompare("t.col1", ">abc", Integer.class)
+            .andCompare("t.col2", "12", Long.class)
+            .andCompare("t.col3", "<=1.5", Double.class);
+    assertEquals("SELECT * FROM MyTable t WHERE t.col2 = :p2 AND t.col3 <= :p3", query.getSql());
+    assertEquals(12L, query.getParams().get("p2"));
+    assertEquals(1.5, query.getParams().get("p3"));
+    assertEquals(1, invalid.size());
+    assertEquals("t.col1:abc:Integer", invalid.get(0));
+  }
+
+  @Test
+  public void testPrimitive()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t.col1", 1)
+            .andCompare("t.col2", 2L)
+            .andCompare("t.col3", 3.5)
+            .andCompare("t.col4", QJOperator.GE, 4)
+            .andCompare("t.col5", QJOperator.NE, 5L)
+            .andCompare("t.col6", QJOperator.LT, 6.5);
+    assertEquals("SELECT * FROM MyTable t WHERE t.col1 = :p1 AND t.col2 = :p2 AND t.col3 = :p3 AND t.col4 >= :p4 AND NOT t.col5 = :p5 AND t.col6 < :p6", query.getSql());
+    assertEquals(1, query.getParams().get("p1"));
+    assertEquals(2L, query.getParams().get("p2"));
+    assertEquals(3.5, query.getParams().get("p3"));
+    assertEquals(4, query.getParams().get("p4"));
+    assertEquals(5L, query.getParams().get("p5"));
+    assertEquals(6.5, query.getParams().get("p6"));
+    assertEquals(4, ((QJIntParam) query.getParamsList().get(3)).getInt());
+  }
+
+  @Test
+  public void testParamMap()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andWhere("t.a = :a", QJParam.p("a", 0)).addParam("a", 1);
+    for(int i = 0; i < 12; i++)
+    {
+      query.andCompare("t.col" + i, i);
+    }
+    Map<String, Object> params = query.getParams();
+    assertEquals(13, params.size());
+    assertEquals(0, params.get("a"));
+    assertEquals(11, params.get("p12"));
+    assertNull(params.get("p13"));
+    assertEquals(new HashMap<>(params), params);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testParamMapReadOnly()
+  {
+    new QueryBuilder().from("MyTable", "t").andCompare("t.a", 1).getParams().put("x", 1);
+  }
+
+  @Test
+  public void testTableAlias()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t", "col", "5", Integer.class)
+            .andCompare(null, "name", "=a", String.class);
+    assertEquals("SELECT * FROM MyTable t WHERE t.col = :p1 AND name = :p2", query.getSql());
+    assertEquals(5, query.getParams().get("p1"));
+  }
+
+  @Test
+  public void testPrimitiveBinding() throws Exception
+  {
+    List<String> calls = new ArrayList<>();
+    PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]
+    {
+      PreparedStatement.class
+    }, (proxy, method, args) ->
+    {
+      calls.add(method.getName() + "(" + args[0] + ", " + args[1] + ")");
+      return null;
+    });
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t.a", 1)
+            .andCompare("t.b", 2L)
+            .andCompare("t.c", 0.5)
+            .andCompare("t.d", "=x")
+            .andWhere("t.e = :a OR t.f = :a", QJParam.p("a", 3));
+    query.getBindings().bind(statement);
+    assertEquals("[setInt(1, 1), setLong(2, 2), setDouble(3, 0.5), setObject(4, x), setObject(5, 3), setObject(6, 3)]",
+            calls.toString());
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class TestCompiledQuery
+{
+
+  @Test
+  public void testCompile()
+  {
+    CompiledQuery compiled = new QueryBuilder().from("MyTable", "t")
+            .innerJoin("JoinTable", "jt", "jt.refId = t.id AND jt.status = :status", QJParam.p("status", 1))
+            .andWhere("t.id = :id", QJParam.p("id", 1))
+            .andCompare("t.name", "My name")
+            .compile();
+    assertEquals("SELECT * FROM MyTable t INNER JOIN JoinTable jt ON jt.refId = t.id AND jt.status = :status WHERE t.id = :id AND t.name LIKE :p1", compiled.getSql());
+    assertEquals(Arrays.asList("status", "id", "p1"), compiled.getParamNames());
+    assertEquals(3, compiled.getParams().size());
+    assertEquals("%My name%", compiled.getParams().get("p1"));
+  }
+
+  @Test
+  public void testBind()
+  {
+    CompiledQuery compiled = new QueryBuilder().from("MyTable", "t")
+            .andWhere("t.id = :id AND t.status = :status", QJParam.p("id", 0), QJParam.p("status", 0))
+            .compile();
+    Map<String, Object> params = compiled.bind(5, 2);
+    assertEquals(2, params.size());
+    assertEquals(5, params.get("id"));
+    assertEquals(2, params.get("status"));
+
+    params = compiled.bind(Collections.singletonMap("status", 3));
+    assertEquals(0, params.get("id"));
+    assertEquals(3, params.get("status"));
+    assertEquals(0, compiled.getParams().get("status"));
+  }
+
+  @Test
+  public void testCompileSubQuery()
+  {
+    QueryBuilder and1Query = new QueryBuilder("r").andCompare("t.col1", "1", Integer.class);
+    CompiledQuery compiled = new QueryBuilder().from("MyTable", "t")
+            .andWhere("t.id = :id", QJParam.p("id", 1))
+            .andWhere(and1Query)
+            .compile();
+    assertEquals("SELECT * FROM MyTable t WHERE t.id = :id AND (t.col1 = :r1)", compiled.getSql());
+    assertEquals(Arrays.asList("id", "r1"), compiled.getParamNames());
+    assertSame(compiled.getSql(), compiled.getSql());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBindWrongCount()
+  {
+    new QueryBuilder().from("MyTable", "t").andWhere("t.id = :id", QJParam.p("id", 1)).compile().bind(1, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBindUnknownName()
+  {
+    new QueryBuilder().from("MyTable", "t").andWhere("t.id = :id", QJParam.p("id", 1)).compile()
+            .bind(Collections.singletonMap("other", 1));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import static ch.baso10.queryj.core.QJParam.p;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TestCount
+{
+
+  @Test
+  public void testCountQuery()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .select("t.id, t.name")
+            .innerJoin("JoinTable", "jt", "jt.refId = t.id AND jt.status = :status", p("status", 1))
+            .andCompare("t.name", "a")
+            .andWhere(new QueryBuilder("g").andCompare("t.col", 5).orWhere("t.col IS NULL"))
+            .orderBy("t.id")
+            .limit(10)
+            .offset(20);
+    String sql = query.getSql();
+    QueryBuilder count = query.toCountQuery();
+    assertEquals("SELECT COUNT(*) FROM MyTable t INNER JOIN JoinTable jt ON jt.refId = t.id AND jt.status = :status WHERE t.name LIKE :p1 AND (t.col = :g1 OR t.col IS NULL)", count.getSql());
+    assertEquals(query.getParams(), count.getParams());
+    assertEquals(sql, query.getSql());
+
+    count.andCompare("t.other", 2);
+    assertEquals(2, count.getParams().get("p2"));
+    assertEquals(3, query.getParams().size());
+  }
+
+  @Test
+  public void testWrapped()
+  {
+    QueryBuilder distinct = new QueryBuilder().from("MyTable", "t").select("t.name").distinct(true)
+            .andCompare("t.status", 1).orderBy("t.name").limit(5);
+    assertEquals("SELECT COUNT(*) FROM (SELECT DISTINCT t.name FROM MyTable t WHERE t.status = :p1) c", distinct.toCountQuery().getSql());
+    assertEquals(1, distinct.toCountQuery().getParams().get("p1"));
+
+    QueryBuilder grouped = new QueryBuilder().from("MyTable", "t").select("t.status, COUNT(*)").groupBy("t.status");
+    assertEquals("SELECT COUNT(*) FROM (SELECT t.status, COUNT(*) FROM MyTable t GROUP BY t.status) c", grouped.toCountQuery().getSql());
+  }
+
+  @Test
+  public void testPage() throws Exception
+  {
+    H2DataSource db = new H2DataSource("count", "CREATE TABLE item (id INT PRIMARY KEY, status INT)",
+            "INSERT INTO item SELECT x, MOD(x, 2) FROM SYSTEM_RANGE(1, 25)");
+    try
+    {
+      QueryExecutor executor = new QueryExecutor(db.dataSource);
+      QueryBuilder query = new QueryBuilder().from("item", "t").andCompare("t.status", 1).orderBy("t.id").limit(3).offset(3);
+      QJPage<Integer> page = executor.queryPage(query, (rs, rowNum) -> rs.getInt("id"));
+      assertEquals(Arrays.asList(7, 9, 11), page.getRows());
+      assertEquals(13, page.getTotal());
+
+      page = executor.queryPageAsync(query.offset(12), (rs, rowNum) -> rs.getInt("id")).get(10, TimeUnit.SECONDS);
+      assertEquals(Arrays.asList(25), page.getRows());
+      assertEquals(13, page.getTotal());
+      assertEquals(0, db.open.get());
+    }
+    finally
+    {
+      db.close();
+    }
+  }
+
+  @Test(expected = SQLException.class)
+  public void testPageFailure() throws SQLException
+  {
+    H2DataSource db = new H2DataSource("countFailure");
+    try
+    {
+      new QueryExecutor(db.dataSource).queryPage(new QueryBuilder().from("missing").limit(1), (rs, rowNum) -> rowNum);
+    }
+    finally
+    {
+      db.close();
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestDialect
+{
+
+  private static QueryBuilder query(QJDialect dialect, Integer limit, Integer offset)
+  {
+    return new QueryBuilder().dialect(dialect).from("MyTable", "t").orderBy("t.id").limit(limit).offset(offset);
+  }
+
+  @Test
+  public void testGeneric()
+  {
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id LIMIT 10 OFFSET 20", query(QJDialects.GENERIC, 10, 20).getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id LIMIT 2147483647 OFFSET 20", query(QJDialects.GENERIC, null, 20).getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id LIMIT 5", query(QJDialects.GENERIC, 5, 0).getSql());
+  }
+
+  @Test
+  public void testPostgreSql()
+  {
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id LIMIT 10 OFFSET 20", query(QJDialects.POSTGRESQL, 10, 20).getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id OFFSET 20", query(QJDialects.POSTGRESQL, null, 20).getSql());
+    assertEquals("SELECT * FROM MyTable t WHERE FALSE",
+            new QueryBuilder().dialect(QJDialects.POSTGRESQL).from("MyTable", "t").andIn("t.id", Collections.emptyList()).getSql());
+  }
+
+  @Test
+  public void testMySql()
+  {
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id LIMIT 10", query(QJDialects.MYSQL, 10, null).getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id LIMIT 18446744073709551615 OFFSET 20", query(QJDialects.MYSQL, null, 20).getSql());
+  }
+
+  @Test
+  public void testAnsi()
+  {
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id FETCH FIRST 10 ROWS ONLY", query(QJDialects.ANSI, 10, null).getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY", query(QJDialects.H2, 10, 20).getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id OFFSET 20 ROWS", query(QJDialects.ANSI, null, 20).getSql());
+  }
+
+  @Test
+  public void testSqlServer()
+  {
+    assertEquals("SELECT DISTINCT TOP (10) t.name FROM MyTable t ORDER BY t.id",
+            query(QJDialects.SQL_SERVER, 10, null).distinct(true).select("t.name").getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY", query(QJDialects.SQL_SERVER, 10, 20).getSql());
+    assertEquals("SELECT * FROM MyTable t ORDER BY (SELECT NULL) OFFSET 20 ROWS",
+            new QueryBuilder().dialect(QJDialects.SQL_SERVER).from("MyTable", "t").offset(20).getSql());
+  }
+
+  @Test
+  public void testInList()
+  {
+    List<Integer> values = new ArrayList<>();
+    for(int i = 0; i < 5; i++)
+    {
+      values.add(i);
+    }
+    QueryBuilder array = new QueryBuilder().dialect(QJDialects.H2).maxInListSize(4).from("MyTable", "t").andIn("t.id", values);
+    assertEquals("SELECT * FROM MyTable t WHERE t.id = ANY(:p1)", array.getSql());
+    QueryBuilder list = new QueryBuilder().dialect(QJDialects.MYSQL).maxInListSize(4).from("MyTable", "t").andIn("t.id", values);
+    assertEquals("SELECT * FROM MyTable t WHERE t.id IN (:p1, :p2, :p3, :p4, :p5, :p6, :p7, :p8)", list.getSql());
+    assertEquals(4, list.getParams().get("p8"));
+    QueryBuilder small = new QueryBuilder().dialect(QJDialects.MYSQL).maxInListSize(4).from("MyTable", "t").andIn("t.id", Arrays.asList(1, 2, 3));
+    assertEquals("SELECT * FROM MyTable t WHERE t.id IN (:p1, :p2, :p3, :p4)", small.getSql());
+  }
+
+  @Test
+  public void testGenericHasNoArrays()
+  {
+    QueryBuilder query = new QueryBuilder().maxInListSize(2).from("MyTable", "t").andIn("t.id", Arrays.asList(1, 2, 3));
+    assertEquals("SELECT * FROM MyTable t WHERE t.id IN (:p1, :p2, :p3, :p4)", query.getSql());
+  }
+
+  @Test
+  public void testDialectAfterConditions()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andCompare("t.id", 1);
+    query.dialect(QJDialects.GENERIC);
+    query.limit(1);
+    try
+    {
+      query.dialect(QJDialects.SQL_SERVER);
+      fail();
+    }
+    catch(IllegalStateException ex)
+    {
+      assertEquals(QJDialects.GENERIC, query.getDialect());
+    }
+  }
+
+  @Test
+  public void testDeleteAlias()
+  {
+    assertEquals("DELETE FROM item t WHERE t.id = :p1",
+            new DeleteBuilder().from("item", "t").andCompare("t.id", 1).getSql());
+    assertEquals("DELETE t FROM item t WHERE t.id = :p1",
+            new DeleteBuilder().dialect(QJDialects.MYSQL).from("item", "t").andCompare("t.id", 1).getSql());
+    assertEquals("DELETE t FROM item t WHERE t.id = :p1",
+            new DeleteBuilder().dialect(QJDialects.SQL_SERVER).from("item", "t").andCompare("t.id", 1).getSql());
+    assertEquals("DELETE FROM item WHERE id = :p1",
+            new DeleteBuilder().dialect(QJDialects.SQL_SERVER).from("item").andCompare("id", 1).getSql());
+  }
+
+  @Test
+  public void testSeek()
+  {
+    QueryBuilder rowValue = new QueryBuilder().dialect(QJDialects.POSTGRESQL).from("MyTable", "t").seekAfter("t.created, t.id", 5, 7);
+    assertEquals("SELECT * FROM MyTable t WHERE (t.created, t.id) > (:p1, :p2) ORDER BY t.created, t.id", rowValue.getSql());
+    QueryBuilder expanded = new QueryBuilder().dialect(QJDialects.SQL_SERVER).from("MyTable", "t").seekAfter("t.created, t.id", 5, 7);
+    assertEquals("SELECT * FROM MyTable t WHERE ((t.created > :p1) OR (t.created = :p1 AND t.id > :p2)) ORDER BY t.created, t.id",
+            expanded.getSql());
+  }
+
+  @Test
+  public void testDefaultAndShape()
+  {
+    QJDialects.setDefault(QJDialects.H2);
+    try
+    {
+      assertEquals(QJDialects.H2, new QueryBuilder().getDialect());
+      assertEquals(QJDialects.H2, new QueryBuilder().from("MyTable").limit(1).toCountQuery().getDialect());
+    }
+    finally
+    {
+      QJDialects.setDefault(QJDialects.GENERIC);
+    }
+    assertNotEquals(query(QJDialects.GENERIC, 10, null).getShape(), query(QJDialects.H2, 10, null).getShape());
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id FETCH FIRST 10 ROWS ONLY",
+            ImmutableQueryBuilder.create().dialect(QJDialects.H2).from("MyTable", "t").orderBy("t.id").limit(10).getSql());
+  }
+
+  @Test
+  public void testH2Executes() throws Exception
+  {
+    H2DataSource db = new H2DataSource("dialect", "CREATE TABLE item(id INT PRIMARY KEY)",
+            "INSERT INTO item SELECT x FROM SYSTEM_RANGE(1, 20)");
+    try
+    {
+      QueryExecutor executor = new QueryExecutor(db.dataSource);
+      QueryBuilder query = new QueryBuilder().dialect(QJDialects.H2).from("item", "t").select("t.id")
+              .andIn("t.id", Arrays.asList(3, 4, 5, 6, 7, 8)).orderBy("t.id").limit(2).offset(1);
+      assertEquals(Arrays.asList(4, 5), executor.query(query, (rs, row) -> rs.getInt(1)));
+      QueryBuilder array = new QueryBuilder().dialect(QJDialects.H2).maxInListSize(2).from("item", "t").select("t.id")
+              .andIn("t.id", Arrays.asList(3, 5, 7, 30)).orderBy("t.id");
+      assertEquals("SELECT t.id FROM item t WHERE t.id = ANY(:p1) ORDER BY t.id", array.getSql());
+      assertEquals(Arrays.asList(3, 5, 7), executor.query(array, (rs, row) -> rs.getInt(1)));
+      QueryBuilder none = new QueryBuilder().dialect(QJDialects.H2).from("item", "t").andIn("t.id", Collections.emptyList());
+      assertEquals(0, executor.query(none, (rs, row) -> rs.getInt(1)).size());
+    }
+    finally
+    {
+      db.close();
+    }
+  }
+}
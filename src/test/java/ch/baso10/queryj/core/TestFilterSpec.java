@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestFilterSpec
+{
+
+  private static final QJFilterSpec SPEC = new QJFilterSpec()
+          .field("name", "t", "name", String.class)
+          .field("age", "t", "age", Integer.class)
+          .field("amount", "o", "amount", Double.class, QJOperator.GE, QJOperator.LE)
+          .field("code", "t.code", String.class)
+          .ignore("page");
+
+  @Test
+  public void testSameAsAndCompare()
+  {
+    Map<String, Object> form = new LinkedHashMap<>();
+    form.put("page", "2");
+    form.put("code", "=X1");
+    form.put("amount", ">=10.5");
+    form.put("age", "<>30");
+    form.put("name", "abc");
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andCompareAll(SPEC, form);
+    QueryBuilder expected = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t", "name", "abc", String.class)
+            .andCompare("t", "age", "<>30", Integer.class)
+            .andCompare("o", "amount", ">=10.5", Double.class)
+            .andCompare("t.code", "=X1", String.class);
+    assertEquals(expected.getSql(), query.getSql());
+    assertEquals(expected.getParams(), query.getParams());
+    assertEquals("SELECT * FROM MyTable t WHERE t.name LIKE :p1 AND NOT t.age = :p2 AND o.amount >= :p3 AND t.code = :p4",
+            query.getSql());
+  }
+
+  @Test
+  public void testOrderIndependent()
+  {
+    Map<String, Object> first = new LinkedHashMap<>();
+    first.put("age", 5);
+    first.put("name", "a");
+    Map<String, Object> second = new LinkedHashMap<>();
+    second.put("name", "a");
+    second.put("age", 5);
+    assertEquals(new QueryBuilder().andCompareAll(SPEC, first).from("MyTable").getSql(),
+            new QueryBuilder().andCompareAll(SPEC, second).from("MyTable").getSql());
+  }
+
+  @Test
+  public void testSkipped()
+  {
+    List<String> invalid = new ArrayList<>();
+    Map<String, Object> form = new HashMap<>();
+    form.put("name", " ");
+    form.put("age", "old");
+    form.put("amount", "<5");
+    form.put("code", null);
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .onInvalidValue((field, value, type) -> invalid.add(field + "=" + value))
+            .andCompareAll(SPEC, form)
+            .andCompareAll(SPEC, null);
+    assertEquals("SELECT * FROM MyTable t", query.getSql());
+    assertEquals(2, invalid.size());
+    assertEquals("t.age=old", invalid.get(0));
+    assertEquals("o.amount=<5", invalid.get(1));
+  }
+
+  @Test
+  public void testUnknownKey()
+  {
+    Map<String, Object> form = new HashMap<>();
+    form.put("nmae", "abc");
+    try
+    {
+      new QueryBuilder().from("MyTable", "t").andCompareAll(SPEC, form);
+      fail();
+    }
+    catch(IllegalArgumentException ex)
+    {
+      assertEquals("Unknown filter field: nmae", ex.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDuplicateField()
+  {
+    new QJFilterSpec().field("a", "t.a", String.class).field("a", "t.b", String.class);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static ch.baso10.queryj.core.QJParam.p;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class TestImmutableQuery
+{
+
+  private static final ImmutableQueryBuilder BASE = ImmutableQueryBuilder.create()
+          .from("orders", "o")
+          .innerJoin("customer", "c", "c.id = o.customerId")
+          .andWhere("o.tenantId = :tenant", p("tenant", 7));
+
+  @Test
+  public void testFork()
+  {
+    ImmutableQueryBuilder byName = BASE.andCompare("c.name", "a").orderBy("o.id");
+    ImmutableQueryBuilder byStatus = BASE.andCompare("o.status", 2).andIn("o.type", Arrays.asList(1, 2, 3));
+    assertEquals("SELECT * FROM orders o INNER JOIN customer c ON c.id = o.customerId WHERE o.tenantId = :tenant", BASE.getSql());
+    assertEquals("SELECT * FROM orders o INNER JOIN customer c ON c.id = o.customerId WHERE o.tenantId = :tenant AND c.name LIKE :p1 ORDER BY o.id", byName.getSql());
+    assertEquals("SELECT * FROM orders o INNER JOIN customer c ON c.id = o.customerId WHERE o.tenantId = :tenant AND o.status = :p1 AND o.type IN (:p2, :p3, :p4, :p5)", byStatus.getSql());
+    assertEquals("%a%", byName.getParams().get("p1"));
+    assertEquals(2, byStatus.getParams().get("p1"));
+    assertEquals(1, BASE.getParams().size());
+    assertSame(byName.compile(), byName.compile());
+  }
+
+  @Test
+  public void testSameAsMutable()
+  {
+    ImmutableQueryBuilder immutable = ImmutableQueryBuilder.create("q").from("MyTable", "t")
+            .select("t.id")
+            .andWhere(ImmutableQueryBuilder.create("g").andCompare("t.a", 1).orWhere("t.a IS NULL"))
+            .andCompare("t.b", QJOperator.GT, 2L)
+            .seekAfter("t.id", 10)
+            .limit(5);
+    QueryBuilder mutable = new QueryBuilder("q").from("MyTable", "t")
+            .select("t.id")
+            .andWhere(new QueryBuilder("g").andCompare("t.a", 1).orWhere("t.a IS NULL"))
+            .andCompare("t.b", QJOperator.GT, 2L)
+            .seekAfter("t.id", 10)
+            .limit(5);
+    assertEquals(mutable.getSql(), immutable.getSql());
+    assertEquals(mutable.getParams(), immutable.getParams());
+    assertEquals(mutable.getSql(), immutable.toQueryBuilder().getSql());
+  }
+
+  @Test
+  public void testBaseReplayedOnce()
+  {
+    AtomicInteger replays = new AtomicInteger();
+    ImmutableQueryBuilder base = ImmutableQueryBuilder.create().from("MyTable", "t")
+            .onInvalidValue((field, value, type) -> replays.incrementAndGet())
+            .andCompare("t.id", "x", Integer.class)
+            .reuseParams(true)
+            .andWhere(ImmutableQueryBuilder.create("g").andCompare("t.a", 1).orWhere("t.a IS NULL", (QJParam[]) null))
+            .andCompare("t.b", 3);
+    ImmutableQueryBuilder first = base.andCompare("t.c", 3);
+    ImmutableQueryBuilder second = base.andCompare("t.c", 4).limit(1);
+    assertEquals("SELECT * FROM MyTable t WHERE (t.a = :g1 OR t.a IS NULL) AND t.b = :p2 AND t.c = :p2", first.getSql());
+    assertEquals("SELECT * FROM MyTable t WHERE (t.a = :g1 OR t.a IS NULL) AND t.b = :p2 AND t.c = :p3 LIMIT 1", second.getSql());
+    for(int i = 10; i < 15; i++)
+    {
+      assertEquals(i, base.andCompare("t.d", i).getParams().get("p3"));
+    }
+    assertEquals(1, replays.get());
+    assertEquals(base.toQueryBuilder().getSql(), base.getSql());
+  }
+
+  @Test
+  public void testConcurrentForks() throws Exception
+  {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try
+    {
+      List<Future<String>> results = new ArrayList<>();
+      for(int i = 0; i < 200; i++)
+      {
+        int id = i;
+        results.add(pool.submit(() ->
+        {
+          ImmutableQueryBuilder query = BASE.andCompare("o.id", id).limit(10);
+          return query.getSql() + " " + query.getParams().get("p1");
+        }));
+      }
+      for(int i = 0; i < 200; i++)
+      {
+        assertEquals("SELECT * FROM orders o INNER JOIN customer c ON c.id = o.customerId WHERE o.tenantId = :tenant AND o.id = :p1 LIMIT 10 " + i, results.get(i).get());
+      }
+    }
+    finally
+    {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TestIn
+{
+
+  @Test
+  public void testIn()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andIn("t.id", Arrays.asList(1, 2, 3));
+    assertEquals("SELECT * FROM MyTable t WHERE t.id IN (:p1, :p2, :p3, :p4)", query.getSql());
+    assertEquals(4, query.getParams().size());
+    assertEquals(3, query.getParams().get("p3"));
+    assertEquals(3, query.getParams().get("p4"));
+  }
+
+  @Test
+  public void testBuckets()
+  {
+    assertEquals("SELECT * FROM MyTable t WHERE t.id IN (:p1)", new QueryBuilder().from("MyTable", "t").andIn("t.id", Collections.singleton(1)).getSql());
+    assertEquals(new QueryBuilder().from("MyTable", "t").andIn("t.id", Arrays.asList(1, 2, 3, 4, 5)).getSql(),
+            new QueryBuilder().from("MyTable", "t").andIn("t.id", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8)).getSql());
+    assertEquals(8, new QueryBuilder().from("MyTable", "t").andIn("t.id", Arrays.asList(1, 2, 3, 4, 5)).getParams().size());
+    assertEquals(6, new QueryBuilder().from("MyTable", "t").maxInListSize(6).andIn("t.id", Arrays.asList(1, 2, 3, 4, 5)).getParams().size());
+  }
+
+  @Test
+  public void testArray()
+  {
+    QueryBuilder query = new QueryBuilder().dialect(QJDialects.POSTGRESQL).from("MyTable", "t").maxInListSize(2)
+            .andIn("t.id", Arrays.asList(1, 2, 3));
+    assertEquals("SELECT * FROM MyTable t WHERE t.id = ANY(:p1)", query.getSql());
+    assertArrayEquals(new Object[]
+    {
+      1, 2, 3
+    }, (Object[]) query.getParams().get("p1"));
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    assertEquals("SELECT * FROM MyTable t WHERE 1 = 0", new QueryBuilder().from("MyTable", "t").andIn("t.id", Collections.emptyList()).getSql());
+    assertEquals("SELECT * FROM MyTable t", new QueryBuilder().from("MyTable", "t").andIn("t.id", null).getSql());
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TestInsertBuilder
+{
+
+  @Test
+  public void testInsert()
+  {
+    List<CompiledQuery> statements = new InsertBuilder().into("MyTable").columns("id", "name")
+            .values(1, "a")
+            .values(2, "b")
+            .getStatements();
+    assertEquals(1, statements.size());
+    assertEquals("INSERT INTO MyTable (id, name) VALUES (:p1, :p2), (:p3, :p4)", statements.get(0).getSql());
+    assertEquals("INSERT INTO MyTable (id, name) VALUES (?, ?), (?, ?)", statements.get(0).getPositionalSql());
+    assertArrayEquals(new Object[]
+    {
+      1, "a", 2, "b"
+    }, statements.get(0).getPositionalParams());
+  }
+
+  @Test
+  public void testChunks()
+  {
+    InsertBuilder insert = new InsertBuilder().into("MyTable").columns("id", "name", "status").maxParams(7);
+    for(int i = 0; i < 5; i++)
+    {
+      insert.values(i, "n" + i, 0);
+    }
+    assertEquals(2, insert.getRowsPerStatement());
+    List<CompiledQuery> statements = insert.getStatements();
+    assertEquals(3, statements.size());
+    assertSame(statements.get(0).getSql(), statements.get(1).getSql());
+    assertEquals("INSERT INTO MyTable (id, name, status) VALUES (:p1, :p2, :p3)", statements.get(2).getSql());
+    assertEquals(2, statements.get(1).getParams().get("p1"));
+    assertEquals("n4", statements.get(2).getParams().get("p2"));
+
+    insert.clearRows().values(9, "n9", 1).values(10, "n10", 1);
+    assertSame(statements.get(0).getSql(), insert.getStatements().get(0).getSql());
+  }
+
+  @Test
+  public void testSqlLength()
+  {
+    InsertBuilder insert = new InsertBuilder().into("T").columns("a").maxSqlLength(40).maxRows(100);
+    for(int i = 0; i < 10; i++)
+    {
+      insert.values(i);
+    }
+    for(CompiledQuery statement : insert.getStatements())
+    {
+      assertTrue(statement.getSql(), statement.getSql().length() <= 40);
+    }
+    assertEquals(2, insert.getRowsPerStatement());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongRowLength()
+  {
+    new InsertBuilder().into("T").columns("a", "b").values(1);
+  }
+}
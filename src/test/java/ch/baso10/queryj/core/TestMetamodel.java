@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TestMetamodel
+{
+
+  @Test
+  public void testGeneratedColumns()
+  {
+    assertEquals("customer", QCustomer.TABLE);
+    assertEquals("c", QCustomer.ALIAS);
+    assertEquals("c.id", QCustomer.ID.getExpression());
+    assertEquals(Long.class, QCustomer.ID.getType());
+    assertEquals(Integer.class, QCustomer.VERSION.getType());
+    assertEquals("c.first_name", QCustomer.FIRST_NAME.toString());
+    assertEquals(Boolean.class, QCustomer.ACTIVE.getType());
+    assertEquals(List.class, QCustomer.TAGS.getType());
+    assertEquals("e.first_name", QCustomer.FIRST_NAME.withAlias("e").getExpression());
+  }
+
+  @Test
+  public void testSameAsAndCompare()
+  {
+    QueryBuilder query = new QueryBuilder().select(QCustomer.ID, QCustomer.FIRST_NAME).from(QCustomer.TABLE, QCustomer.ALIAS)
+            .andCompare(QCustomer.FIRST_NAME, "Sm*")
+            .andCompare(QCustomer.AGE, ">=30")
+            .andCompare(QCustomer.ID, 5)
+            .andCompare(QCustomer.BALANCE, "<100");
+    QueryBuilder expected = new QueryBuilder().select("c.id, c.first_name").from("customer", "c")
+            .andCompare("c.first_name", "Sm*", String.class)
+            .andCompare("c.age", ">=30", Integer.class)
+            .andCompare("c.id", 5, Long.class)
+            .andCompare("c.balance", "<100", BigDecimal.class);
+    assertEquals(expected.getSql(), query.getSql());
+    assertEquals(expected.getParams(), query.getParams());
+    assertEquals("SELECT c.id, c.first_name FROM customer c WHERE c.first_name LIKE :p1 AND c.age >= :p2 AND c.id = :p3"
+            + " AND c.balance < :p4", query.getSql());
+    assertEquals(30, query.getParams().get("p2"));
+  }
+
+  @Test
+  public void testFilterSpec()
+  {
+    QJFilterSpec spec = new QJFilterSpec().field("age", QCustomer.AGE, QJOperator.GE).field("name", QCustomer.FIRST_NAME);
+    Map<String, Object> form = new HashMap<>();
+    form.put("age", ">=18");
+    form.put("name", "=Smith");
+    assertEquals("SELECT * FROM customer c WHERE c.age >= :p1 AND c.first_name = :p2",
+            ImmutableQueryBuilder.create().from(QCustomer.TABLE, QCustomer.ALIAS).andCompareAll(spec, form).getSql());
+  }
+}
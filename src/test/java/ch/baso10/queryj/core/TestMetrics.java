@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestMetrics
+{
+
+  @After
+  public void tearDown()
+  {
+    QJInstrumentation.setListener(null);
+  }
+
+  @Test
+  public void testHistogram()
+  {
+    QJHistogram histogram = new QJHistogram();
+    for(long i = 1; i <= 1000; i++)
+    {
+      histogram.record(i * 1000);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000, histogram.getMax());
+    assertEquals(500500, histogram.getMean(), 0.001);
+    assertWithin(500000, histogram.getValueAtPercentile(50));
+    assertWithin(990000, histogram.getValueAtPercentile(99));
+    assertEquals(1000000, histogram.getValueAtPercentile(100));
+    assertEquals(0, new QJHistogram().getValueAtPercentile(99));
+    for(long value : new long[]
+    {
+      0, 31, 32, 33, 1000, Long.MAX_VALUE
+    })
+    {
+      int index = QJHistogram.index(value);
+      assertTrue(QJHistogram.highestEquivalent(index) >= value);
+      assertTrue(index == 0 || QJHistogram.highestEquivalent(index - 1) < value);
+    }
+  }
+
+  private static void assertWithin(long expected, long actual)
+  {
+    assertTrue(actual + " not within 3.2% of " + expected, Math.abs(actual - expected) <= expected * 0.032);
+  }
+
+  @Test
+  public void testFingerprint()
+  {
+    String a = QJPositionalSql.parse("SELECT * FROM t WHERE a = :p1").getFingerprint();
+    assertEquals(16, a.length());
+    assertEquals(a, QJPositionalSql.parse("SELECT * FROM t WHERE a = :r1").getFingerprint());
+    assertTrue(!a.equals(QJPositionalSql.parse("SELECT * FROM t WHERE b = :p1").getFingerprint()));
+  }
+
+  @Test
+  public void testRender()
+  {
+    QJMetrics metrics = new QJMetrics();
+    QJInstrumentation.setListener(metrics);
+    QueryBuilder query = new QueryBuilder().from("MyTable").andCompare("id", 1);
+    query.getSql();
+    query.getSql();
+    new QueryBuilder().from("MyTable").andCompare("id", 2).getSql();
+    QJMetrics.Stats stats = metrics.getStats(QJPositionalSql.parse(query.getSql()).getFingerprint());
+    assertEquals(2, stats.getRenders());
+    assertEquals(query.getSql(), stats.getSql());
+  }
+
+  @Test
+  public void testDumpLocale()
+  {
+    QJMetrics metrics = new QJMetrics();
+    metrics.executed("abc", "SELECT 1", new Object[0], 1500000, 1);
+    Locale locale = Locale.getDefault();
+    Locale.setDefault(Locale.GERMANY);
+    try
+    {
+      assertTrue(metrics.dump(), metrics.dump().contains(" 1.500 "));
+    }
+    finally
+    {
+      Locale.setDefault(locale);
+    }
+  }
+
+  @Test
+  public void testExecution() throws SQLException
+  {
+    H2DataSource db = new H2DataSource("metrics", "CREATE TABLE item (id INT PRIMARY KEY)", "INSERT INTO item SELECT x FROM SYSTEM_RANGE(1, 10)");
+    try
+    {
+      QJMetrics metrics = new QJMetrics(2);
+      QueryExecutor executor = new QueryExecutor(db.dataSource).listener(metrics);
+      QueryBuilder query = new QueryBuilder().from("item").andCompare("id", QJOperator.LE, 4);
+      executor.query(query, (rs, rowNum) -> rowNum);
+      executor.query(new QueryBuilder().from("item").andCompare("id", QJOperator.LE, 6), (rs, rowNum) -> rowNum);
+      try(Stream<Integer> stream = executor.stream(query, (rs, rowNum) -> rowNum))
+      {
+        stream.limit(2).count();
+      }
+      QJMetrics.Stats stats = metrics.getStats(QJPositionalSql.parse(query.getSql()).getFingerprint());
+      // both queries have the same shape, the stream reports the rows read before it was closed
+      assertEquals(3, stats.getExecutions());
+      assertEquals(12, stats.getRows());
+      assertEquals(3, stats.getBinds());
+      assertEquals(3, stats.getLatency().getCount());
+
+      try
+      {
+        executor.query(new QueryBuilder().from("missing"), (rs, rowNum) -> rowNum);
+        fail();
+      }
+      catch(SQLException e)
+      {
+        // expected
+      }
+      executor.update(new DeleteBuilder().from("item").andCompare("id", 1));
+      assertEquals(1, metrics.getStats(QJPositionalSql.parse("SELECT * FROM missing t").getFingerprint()).getErrors());
+      assertEquals(1, metrics.getStats(QJMetrics.OTHER).getRows());
+      assertNull(metrics.getStats(QJMetrics.OTHER).getSql());
+      assertTrue(metrics.dump().contains("SELECT * FROM item t WHERE id <= :p1"));
+    }
+    finally
+    {
+      db.close();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+
+public class TestNormalize
+{
+
+  @Test
+  public void testUnwrapSingle()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t.a", 1)
+            .andWhere(new QueryBuilder("g").andCompare("t.b", 2))
+            .orWhere(new QueryBuilder("h").andWhere("t.c = 1 OR t.d = 2"));
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND (t.b = :g1) OR (t.c = 1 OR t.d = 2)", query.getSql());
+    query.normalize();
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.b = :g1 OR (t.c = 1 OR t.d = 2)", query.getSql());
+    assertEquals(2, query.getParams().get("g1"));
+  }
+
+  @Test
+  public void testFlatten()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t.a", 1)
+            .andWhere(new QueryBuilder("g").andCompare("t.b", 2).andIn("t.c", Arrays.asList(1, 2)))
+            .andWhere(new QueryBuilder("h").andCompare("t.d", 3).orWhere(new QueryBuilder("i").andCompare("t.e", 4)))
+            .andWhere(new QueryBuilder("j").andCompare("t.f", 5).andWhere("t.g = 1 OR t.h = 1"));
+    query.normalize();
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.b = :g1 AND t.c IN (:g2, :g3) AND (t.d = :h1 OR t.e = :i1)"
+            + " AND (t.f = :j1 AND t.g = 1 OR t.h = 1)", query.getSql());
+    assertEquals(7, query.getParams().size());
+  }
+
+  @Test
+  public void testOnlyGroup()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andWhere(new QueryBuilder("g").andWhere("t.a = 1 OR t.b = 2").andWhere(new QueryBuilder("h").andCompare("t.c", 3)));
+    query.normalize();
+    assertEquals("SELECT * FROM MyTable t WHERE (t.a = 1 OR t.b = 2 AND t.c = :h1)", query.getSql());
+  }
+
+  @Test
+  public void testOnlyGroupMixedChain()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andWhere(new QueryBuilder("g").andCompare("t.x", "=1").andCompare("t.y", "a")
+                    .orWhere(new QueryBuilder("h").andCompare("t.x", "=1")));
+    assertEquals("SELECT * FROM MyTable t WHERE (t.x = :g1 AND t.y LIKE :g2 OR (t.x = :h1))", query.getSql());
+    query.normalize();
+    assertEquals("SELECT * FROM MyTable t WHERE (t.x = :g1 AND t.y LIKE :g2 OR t.x = :h1)", query.getSql());
+    assertEquals(3, query.getParams().size());
+  }
+
+  @Test
+  public void testOnlyGroupAppendLater()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andWhere(new QueryBuilder("g").andCompare("t.a", 1).orWhere(new QueryBuilder("h").andCompare("t.b", 2)))
+            .normalize()
+            .andWhere("t.c = 3");
+    assertEquals("SELECT * FROM MyTable t WHERE (t.a = :g1 OR t.b = :h1) AND t.c = 3", query.getSql());
+    QueryBuilder and = new QueryBuilder().from("MyTable", "t")
+            .andWhere(new QueryBuilder("g").andCompare("t.a", 1).andCompare("t.b", 2))
+            .normalize()
+            .orWhere("t.c = 3");
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :g1 AND t.b = :g2 OR t.c = 3", and.getSql());
+  }
+
+  @Test
+  public void testRenderAfterNormalizedGroup()
+  {
+    for(int mutations = 1; mutations <= 10; mutations++)
+    {
+      QueryBuilder group = new QueryBuilder("g")
+              .andWhere(new QueryBuilder("h").andCompare("t.a", 1).andCompare("t.b", 2).andCompare("t.c", 3));
+      QueryBuilder query = new QueryBuilder().from("MyTable", "t").andCompare("t.id", 1).andWhere(group);
+      assertEquals("SELECT * FROM MyTable t WHERE t.id = :p1 AND ((t.a = :h1 AND t.b = :h2 AND t.c = :h3))", query.getSql());
+      group.normalize();
+      StringBuilder expected = new StringBuilder("SELECT * FROM MyTable t WHERE t.id = :p1 AND (t.a = :h1 AND t.b = :h2 AND t.c = :h3");
+      for(int i = 0; i < mutations; i++)
+      {
+        group.andWhere("t.d = " + i);
+        expected.append(" AND t.d = ").append(i);
+      }
+      assertEquals(expected.append(')').toString(), query.getSql());
+    }
+  }
+
+  @Test
+  public void testDuplicates()
+  {
+    QueryBuilder group = new QueryBuilder("g").andCompare("t.name", "x").andCompare("t.name", "x").andCompare("t.name", "y");
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t.a", 1)
+            .andCompare("t.a", 1)
+            .andCompare("t.a", 2)
+            .andWhere("t.raw = 1")
+            .andWhere("t.raw = 1")
+            .andWhere(group);
+    query.normalize();
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.a = :p3 AND t.raw = 1 AND t.raw = 1 AND t.name LIKE :g1 AND t.name LIKE :g3", query.getSql());
+    assertEquals(4, query.getParams().size());
+    assertFalse(query.getParams().containsKey("p2"));
+    assertEquals(3, group.getParams().size());
+  }
+
+  @Test
+  public void testDuplicateInGroup()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t.status", "open")
+            .andWhere(new QueryBuilder("f").andCompare("t.status", "open"))
+            .normalize();
+    assertEquals("SELECT * FROM MyTable t WHERE t.status LIKE :p1", query.getSql());
+    assertEquals(1, query.getParams().size());
+  }
+
+  @Test
+  public void testMixedChainKept()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .andCompare("t.a", 1)
+            .orWhere("t.b = 1")
+            .andCompare("t.a", 1)
+            .andWhere(new QueryBuilder("g").andCompare("t.c", 1).andCompare("t.d", 1));
+    String sql = query.getSql();
+    query.normalize();
+    assertEquals(sql, query.getSql());
+  }
+
+  @Test
+  public void testParamNamePrefix()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t");
+    for(int i = 0; i < 10; i++)
+    {
+      query.andCompare("t.x" + i, i);
+    }
+    query.andWhere("t.raw = :p1").andCompare("t.x0", 1).andCompare("t.x0", 0);
+    query.normalize();
+    assertEquals(11, query.getParams().size());
+    assertFalse(query.getParams().containsKey("p12"));
+  }
+}
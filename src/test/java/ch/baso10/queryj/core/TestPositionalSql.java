@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class TestPositionalSql
+{
+
+  @Test
+  public void testPositional()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t")
+            .innerJoin("JoinTable", "jt", "jt.refId = t.id AND jt.status = :status", QJParam.p("status", 1))
+            .andWhere("t.status = :status")
+            .andCompare("t.name", "My name");
+    assertEquals("SELECT * FROM MyTable t INNER JOIN JoinTable jt ON jt.refId = t.id AND jt.status = ? WHERE t.status = ? AND t.name LIKE ?", query.getPositionalSql());
+    assertArrayEquals(new Object[]
+    {
+      1, 1, "%My name%"
+    }, query.getPositionalParams());
+  }
+
+  @Test
+  public void testIndexes()
+  {
+    QJPositionalSql positional = QJPositionalSql.parse("a = :a AND b = :b AND c = :a");
+    assertEquals(3, positional.getSlotCount());
+    assertArrayEquals(new int[]
+    {
+      0, 2
+    }, positional.getIndexes("a"));
+    assertArrayEquals(new int[]
+    {
+      1
+    }, positional.getIndexes("b"));
+    assertEquals(0, positional.getIndexes("c").length);
+    assertSame(positional, QJPositionalSql.parse("a = :a AND b = :b AND c = :a"));
+  }
+
+  @Test
+  public void testLiteralsAndCasts()
+  {
+    QJPositionalSql positional = QJPositionalSql.parse("a = ':x' AND \"b:y\" = :b::text /* :c */ AND d = :d -- :e");
+    assertEquals("a = ':x' AND \"b:y\" = ?::text /* :c */ AND d = ? -- :e", positional.getSql());
+    assertEquals("b", positional.getSlotName(0));
+    assertEquals("d", positional.getSlotName(1));
+  }
+
+  @Test
+  public void testColonParamName()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andWhere("t.id = :id", new QJParam(":id", 1));
+    assertArrayEquals(new Object[]
+    {
+      1
+    }, query.getPositionalParams());
+  }
+
+  @Test
+  public void testCompiledPositional()
+  {
+    CompiledQuery compiled = new QueryBuilder().from("MyTable", "t")
+            .andWhere("t.a = :a OR t.b = :b OR t.c = :a", QJParam.p("a", 0), QJParam.p("b", 0))
+            .compile();
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = ? OR t.b = ? OR t.c = ?", compiled.getPositionalSql());
+    assertArrayEquals(new Object[]
+    {
+      1, 2, 1
+    }, compiled.bindPositional(1, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingParam()
+  {
+    new QueryBuilder().from("MyTable", "t").andWhere("t.id = :id").getPositionalParams();
+  }
+
+  @Test
+  public void testMemoizedOnBuilder()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andCompare("t.a", 1);
+    assertSame(query.getPositional(), query.getPositional());
+    assertSame(query.getSql(), query.getPositional().getNamedSql());
+    query.andCompare("t.b", 2);
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = ? AND t.b = ?", query.getPositional().getSql());
+  }
+
+  @Test
+  public void testCacheBounds()
+  {
+    StringBuilder sb = new StringBuilder("SELECT * FROM MyTable t WHERE t.a = :a");
+    while(sb.length() <= QJPositionalSql.MAX_CACHED_LENGTH)
+    {
+      sb.append(" OR t.a = :a");
+    }
+    String large = sb.toString();
+    assertNotSame(QJPositionalSql.parse(large), QJPositionalSql.parse(large));
+    for(int i = 0; i < 1100; i++)
+    {
+      QJPositionalSql.parse("SELECT * FROM MyTable t WHERE t.id = " + i);
+    }
+    assertTrue(QJPositionalSql.cacheSize() <= 1024);
+  }
+}
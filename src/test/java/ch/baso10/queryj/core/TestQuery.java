@@ -17,7 +17,10 @@ package ch.baso10.queryj.core;
 
 import ch.baso10.queryj.core.QueryBuilder;
 import ch.baso10.queryj.core.QJParam;
+import java.io.StringWriter;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 public class TestQuery
@@ -451,4 +454,58 @@ public class TestQuery
     assertEquals(1, query.getParams().size());
     assertEquals(10, query.getParams().get("p1"));
   }
+
+  @Test
+  public void testRenderTwice()
+  {
+    QueryBuilder and1Query = new QueryBuilder("r").andCompare("t.col1", "1", Integer.class);
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andWhere(and1Query);
+    assertEquals(1, query.getParams().size());
+    String sql = query.getSql();
+    assertSame(sql, query.getSql());
+    assertEquals(1, query.getParamsList().size());
+    assertSame(query.getParams(), query.getParams());
+  }
+
+  @Test
+  public void testRenderAfterModification()
+  {
+    QueryBuilder and1Query = new QueryBuilder("r").andCompare("t.col1", "1", Integer.class);
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andWhere(and1Query);
+    assertEquals("SELECT * FROM MyTable t WHERE (t.col1 = :r1)", query.getSql());
+    query.limit(10);
+    assertEquals("SELECT * FROM MyTable t WHERE (t.col1 = :r1) LIMIT 10", query.getSql());
+    and1Query.andCompare("t.col2", "My");
+    assertEquals("SELECT * FROM MyTable t WHERE (t.col1 = :r1 AND t.col2 LIKE :r2) LIMIT 10", query.getSql());
+    assertEquals(2, query.getParams().size());
+    assertEquals("%My%", query.getParams().get("r2"));
+  }
+
+  @Test
+  public void testAppendSql()
+  {
+    QueryBuilder and1Query = new QueryBuilder("r").andCompare("t.col1", "1", Integer.class).andCompare("t.col2", "My");
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andWhere("t.id = :id", QJParam.p("id", 1)).orWhere(and1Query);
+    String expected = "SELECT * FROM MyTable t WHERE t.id = :id OR (t.col1 = :r1 AND t.col2 LIKE :r2)";
+    assertEquals("/* q */ " + expected, query.appendSql(new StringBuilder("/* q */ ")).toString());
+    assertEquals(expected, query.appendSql(new StringWriter()).toString());
+    assertEquals(expected, query.getSql());
+    assertEquals(expected, query.appendSql(new StringWriter()).toString());
+    assertTrue(query.estimateLength() >= expected.length());
+  }
+
+  @Test
+  public void testThreadLocalBuffer()
+  {
+    QJSqlBuffer.setThreadLocal(true);
+    try
+    {
+      assertEquals("SELECT * FROM MyTable t WHERE t.id = :id", new QueryBuilder().from("MyTable", "t").andWhere("t.id = :id").getSql());
+      assertEquals("SELECT * FROM Other t LIMIT 1", new QueryBuilder().from("Other", "t").limit(1).getSql());
+    }
+    finally
+    {
+      QJSqlBuffer.setThreadLocal(false);
+    }
+  }
 }
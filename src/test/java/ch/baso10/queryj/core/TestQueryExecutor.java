@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestQueryExecutor
+{
+
+  private H2DataSource db;
+  private QueryExecutor executor;
+
+  @Before
+  public void setUp() throws SQLException
+  {
+    db = new H2DataSource("executor",
+            "CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20), status INT)",
+            "INSERT INTO item SELECT x, 'item' || x, MOD(x, 3) FROM SYSTEM_RANGE(1, 30)");
+    executor = new QueryExecutor(db.dataSource).fetchSize(10).queryTimeout(5);
+  }
+
+  @After
+  public void tearDown() throws SQLException
+  {
+    db.close();
+  }
+
+  @Test
+  public void testQuery() throws SQLException
+  {
+    QueryBuilder query = new QueryBuilder().from("item", "t")
+            .andCompare("t.status", 1)
+            .andIn("t.id", Arrays.asList(1, 4, 5))
+            .orderBy("t.id");
+    List<String> names = executor.query(query, (rs, rowNum) -> rowNum + ":" + rs.getString("name"));
+    assertEquals(Arrays.asList("0:item1", "1:item4"), names);
+    assertEquals(names, executor.query(query.compile(), (rs, rowNum) -> rowNum + ":" + rs.getString("name")));
+    assertEquals(0, db.open.get());
+  }
+
+  @Test
+  public void testMaxRows() throws SQLException
+  {
+    QueryBuilder query = new QueryBuilder().from("item", "t").orderBy("t.id");
+    assertEquals(7, executor.maxRows(7).query(query, (rs, rowNum) -> rs.getInt(1)).size());
+    assertEquals(Integer.valueOf(1), executor.queryFirst(query, (rs, rowNum) -> rs.getInt(1)));
+    assertNull(executor.queryFirst(query.andCompare("t.id", 99), (rs, rowNum) -> rs.getInt(1)));
+  }
+
+  @Test
+  public void testUpdate() throws SQLException
+  {
+    assertEquals(10, executor.update(new UpdateBuilder().update("item").set("name", "x").andCompare("status", 0)));
+    assertEquals(10, executor.update(new DeleteBuilder().from("item").andCompare("name", "=x")));
+    assertEquals(20, executor.query(new QueryBuilder().from("item"), (rs, rowNum) -> rowNum).size());
+    assertEquals(0, db.open.get());
+  }
+
+  @Test
+  public void testClosedOnError()
+  {
+    try
+    {
+      executor.query(new QueryBuilder().from("item"), (rs, rowNum) ->
+      {
+        throw new SQLException("mapper");
+      });
+      fail();
+    }
+    catch(SQLException e)
+    {
+      assertEquals("mapper", e.getMessage());
+    }
+    try
+    {
+      executor.query(new QueryBuilder().from("missing"), (rs, rowNum) -> rowNum);
+      fail();
+    }
+    catch(SQLException e)
+    {
+      // expected
+    }
+    assertEquals(0, db.open.get());
+  }
+
+  @Test
+  public void testInsertIsAtomic() throws SQLException
+  {
+    InsertBuilder insert = new InsertBuilder().into("item").columns("id", "name", "status").maxRows(2);
+    insert.values(100, "a", 0).values(101, "b", 0).values(102, "c", 0).values(1, "duplicate", 0);
+    assertEquals(2, insert.getStatements().size());
+    try
+    {
+      executor.insert(insert);
+      fail();
+    }
+    catch(SQLException e)
+    {
+      // expected
+    }
+    assertEquals(30, executor.query(new QueryBuilder().from("item"), (rs, rowNum) -> rowNum).size());
+    assertEquals(3, executor.insert(insert.clearRows().values(100, "a", 0).values(101, "b", 0).values(102, "c", 0)));
+    assertEquals(33, executor.query(new QueryBuilder().from("item"), (rs, rowNum) -> rowNum).size());
+    assertEquals(0, db.open.get());
+  }
+}
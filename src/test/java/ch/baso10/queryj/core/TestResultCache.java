@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestResultCache
+{
+
+  private static final RowMapper<String> NAME = (rs, rowNum) -> rs.getString("name");
+
+  private H2DataSource db;
+  private final AtomicLong clock = new AtomicLong();
+  private QJResultCache cache;
+  private QueryExecutor executor;
+
+  @Before
+  public void setUp() throws SQLException
+  {
+    db = new H2DataSource("cache",
+            "CREATE TABLE country (id INT PRIMARY KEY, name VARCHAR(20))",
+            "CREATE TABLE city (id INT PRIMARY KEY, countryId INT, name VARCHAR(20))",
+            "INSERT INTO country VALUES (1, 'CH'), (2, 'DE')",
+            "INSERT INTO city VALUES (1, 1, 'Bern'), (2, 1, 'Basel'), (3, 2, 'Berlin')");
+    cache = new QJResultCache(3, clock::get).ttl(60, TimeUnit.SECONDS);
+    executor = new QueryExecutor(db.dataSource).resultCache(cache);
+  }
+
+  @After
+  public void tearDown() throws SQLException
+  {
+    db.close();
+  }
+
+  private static QueryBuilder cities(String country)
+  {
+    return new QueryBuilder().from("city", "c")
+            .innerJoin("country", "co", "co.id = c.countryId")
+            .andCompare("co.name", "=" + country)
+            .orderBy("c.id");
+  }
+
+  @Test
+  public void testHit() throws SQLException
+  {
+    List<String> rows = executor.queryCached(cities("CH"), NAME);
+    assertEquals(Arrays.asList("Bern", "Basel"), rows);
+    assertSame(rows, executor.queryCached(cities("CH"), NAME));
+    assertEquals(Arrays.asList("Berlin"), executor.queryCached(cities("DE"), NAME));
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+    assertEquals(2, db.opened.get());
+  }
+
+  @Test
+  public void testParameterNames() throws SQLException
+  {
+    RowMapper<Integer> id = (rs, rowNum) -> rs.getInt(1);
+    List<Integer> rows = executor.queryCached(new QueryBuilder().from("city").andWhere("t.countryId = :a", new QJParam("a", 1)), id);
+    assertSame(rows, executor.queryCached(new QueryBuilder().from("city").andWhere("t.countryId = :b", new QJParam("b", 1)), id));
+    assertEquals(Arrays.asList(3), executor.queryCached(new QueryBuilder().from("city").andWhere("t.countryId = :a", new QJParam("a", 2)), id));
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testInvalidation() throws SQLException
+  {
+    executor.queryCached(cities("CH"), NAME);
+    executor.update(new UpdateBuilder().update("CITY").set("name", "Zurich").andCompare("id", 2));
+    assertEquals(Arrays.asList("Bern", "Zurich"), executor.queryCached(cities("CH"), NAME));
+
+    executor.update(new UpdateBuilder().update("country").set("name", "X").andCompare("id", 1));
+    assertEquals(Arrays.asList(), executor.queryCached(cities("CH"), NAME));
+
+    executor.queryCached(cities("DE"), NAME);
+    executor.insert(new InsertBuilder().into("city").columns("id", "countryId", "name").values(4, 2, "Hamburg"));
+    assertEquals(Arrays.asList("Berlin", "Hamburg"), executor.queryCached(cities("DE"), NAME));
+
+    executor.batch(new QJBatch(new DeleteBuilder().from("city").andCompare("id", 4)));
+    assertEquals(Arrays.asList("Berlin"), executor.queryCached(cities("DE"), NAME));
+
+    cache.invalidate("city");
+    executor.queryCached(cities("DE"), NAME);
+    assertEquals(0, cache.getHits());
+  }
+
+  @Test
+  public void testTtl() throws SQLException
+  {
+    executor.queryCached(cities("CH"), NAME);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+    executor.queryCached(cities("CH"), NAME);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    executor.queryCached(cities("CH"), NAME);
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void testBounds() throws SQLException
+  {
+    RowMapper<Integer> id = (rs, rowNum) -> rs.getInt(1);
+    for(int i = 1; i <= 4; i++)
+    {
+      executor.queryCached(new QueryBuilder().from("city").andCompare("id", i), id);
+    }
+    assertEquals(3, cache.size());
+    assertEquals(1, cache.getEvictions());
+
+    cache.invalidateAll();
+    cache.maxWeight(3);
+    executor.queryCached(new QueryBuilder().from("city"), id);
+    executor.queryCached(new QueryBuilder().from("city").andCompare("countryId", 1), id);
+    executor.queryCached(new QueryBuilder().from("city").andCompare("countryId", 2), id);
+    assertEquals(2, cache.size());
+    assertEquals(3, cache.getWeight());
+  }
+}
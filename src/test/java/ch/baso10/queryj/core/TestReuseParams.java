@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+public class TestReuseParams
+{
+
+  @Test
+  public void testSearchTerm()
+  {
+    QueryBuilder query = new QueryBuilder().reuseParams(true).from("MyTable", "t")
+            .orWhere(new QueryBuilder("s").reuseParams(true)
+                    .andCompare("t.name", "abc").andCompare("t.email", "abc").andCompare("t.city", "abc"))
+            .andCompare("t.age", 5)
+            .andCompare("t.size", 5L)
+            .andCompare("t.rank", QJOperator.GE, 5);
+    assertEquals("SELECT * FROM MyTable t WHERE (t.name LIKE :s1 AND t.email LIKE :s1 AND t.city LIKE :s1)"
+            + " AND t.age = :p1 AND t.size = :p2 AND t.rank >= :p1", query.getSql());
+    assertEquals(3, query.getParams().size());
+    assertEquals("SELECT * FROM MyTable t WHERE (t.name LIKE ? AND t.email LIKE ? AND t.city LIKE ?) AND t.age = ? AND t.size = ? AND t.rank >= ?",
+            query.getPositionalSql());
+    assertArrayEquals(new Object[]
+    {
+      "%abc%", "%abc%", "%abc%", 5, 5L, 5
+    }, query.getPositionalParams());
+  }
+
+  @Test
+  public void testDeterministicNames()
+  {
+    QueryBuilder same = new QueryBuilder().reuseParams(true).from("MyTable", "t")
+            .andCompare("t.a", 1).andCompare("t.b", 1).andCompare("t.c", 3);
+    QueryBuilder different = new QueryBuilder().reuseParams(true).from("MyTable", "t")
+            .andCompare("t.a", 1).andCompare("t.b", 2).andCompare("t.c", 3);
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.b = :p1 AND t.c = :p3", same.getSql());
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.b = :p2 AND t.c = :p3", different.getSql());
+  }
+
+  @Test
+  public void testInList()
+  {
+    QueryBuilder query = new QueryBuilder().reuseParams(true).from("MyTable", "t")
+            .andCompare("t.id", "=7")
+            .andIn("t.ref", Arrays.asList("7", "8", "9"));
+    assertEquals("SELECT * FROM MyTable t WHERE t.id = :p1 AND t.ref IN (:p2, :p3, :p4, :p5)", query.getSql());
+    assertEquals(5, query.getParamsList().size());
+    assertEquals("9", query.getParams().get("p5"));
+    for(List<Integer> values : Arrays.asList(Arrays.asList(1, 2, 3), Arrays.asList(1, 2, 3, 4), Arrays.asList(1, 1, 1, 1)))
+    {
+      assertEquals("SELECT * FROM MyTable t WHERE t.ref IN (:p1, :p2, :p3, :p4)",
+              new QueryBuilder().reuseParams(true).from("MyTable", "t").andIn("t.ref", values).getSql());
+    }
+  }
+
+  @Test
+  public void testDisabled()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andCompare("t.a", 1).andCompare("t.b", 1);
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.b = :p2", query.getSql());
+    query.reuseParams(true).andCompare("t.c", 1).andCompare("t.d", 1).reuseParams(false).andCompare("t.e", 1);
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.b = :p2 AND t.c = :p3 AND t.d = :p3 AND t.e = :p5", query.getSql());
+  }
+
+  @Test
+  public void testNormalizeKeepsShared()
+  {
+    QueryBuilder query = new QueryBuilder().reuseParams(true).from("MyTable", "t")
+            .andCompare("t.a", 1).andCompare("t.a", 1).andCompare("t.b", 1).normalize();
+    assertEquals("SELECT * FROM MyTable t WHERE t.a = :p1 AND t.b = :p1", query.getSql());
+    assertEquals(1, query.getParams().size());
+  }
+
+  @Test
+  public void testCountQuery()
+  {
+    QueryBuilder count = new QueryBuilder().reuseParams(true).from("MyTable", "t").andCompare("t.a", 1).toCountQuery()
+            .andCompare("t.b", 1);
+    assertEquals("SELECT COUNT(*) FROM MyTable t WHERE t.a = :p1 AND t.b = :p1", count.getSql());
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestSeek
+{
+
+  @Test
+  public void testFirstPage()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").seekAfter("t.id").limit(10);
+    assertEquals("SELECT * FROM MyTable t ORDER BY t.id LIMIT 10", query.getSql());
+  }
+
+  @Test
+  public void testSingleColumn()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").seekAfter("t.id DESC", 42).limit(10);
+    assertEquals("SELECT * FROM MyTable t WHERE t.id < :p1 ORDER BY t.id DESC LIMIT 10", query.getSql());
+    assertEquals(42, query.getParams().get("p1"));
+  }
+
+  @Test
+  public void testRowValue()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").andCompare("t.status", 1)
+            .seekAfter("t.created, t.id ASC", "2018-01-01", 42).limit(10);
+    assertEquals("SELECT * FROM MyTable t WHERE t.status = :p1 AND (t.created, t.id) > (:p2, :p3) ORDER BY t.created, t.id ASC LIMIT 10", query.getSql());
+    assertEquals(3, query.getParams().size());
+  }
+
+  @Test
+  public void testExpanded()
+  {
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").seekAfter("t.name, t.created DESC, t.id", "a", "b", 3);
+    assertEquals("SELECT * FROM MyTable t WHERE ((t.name > :p1) OR (t.name = :p1 AND t.created < :p2) OR (t.name = :p1 AND t.created = :p2 AND t.id > :p3)) ORDER BY t.name, t.created DESC, t.id", query.getSql());
+    assertEquals(6, query.getPositionalParams().length);
+  }
+
+  @Test
+  public void testToken()
+  {
+    Object[] values =
+    {
+      "a", 1, 2L, 1.5, new BigDecimal("1.25"), true, LocalDate.of(2018, 1, 2)
+    };
+    assertArrayEquals(values, QJSeekToken.decode(QJSeekToken.encode(values)));
+    QueryBuilder query = new QueryBuilder().from("MyTable", "t").seekAfterToken("t.id", QJSeekToken.encode(42));
+    assertEquals("SELECT * FROM MyTable t WHERE t.id > :p1 ORDER BY t.id", query.getSql());
+    assertEquals(42, query.getParams().get("p1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidToken()
+  {
+    QJSeekToken.decode("not a token");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testOrderByMismatch()
+  {
+    new QueryBuilder().from("MyTable", "t").orderBy("t.name").seekAfter("t.id", 1);
+  }
+
+  @Test
+  public void testUnsupportedColumns()
+  {
+    String[] invalid =
+    {
+      "t.created NULLS LAST, t.id", "t.created DESC NULLS FIRST, t.id", "COALESCE(t.a, t.b), t.id", "t.id,", "t.id ASC DESC"
+    };
+    for(String columns : invalid)
+    {
+      try
+      {
+        new QueryBuilder().from("MyTable", "t").seekAfter(columns, 1, 2);
+        fail(columns);
+      }
+      catch(IllegalArgumentException ex)
+      {
+        assertTrue(ex.getMessage(), ex.getMessage().startsWith("Unsupported seek column"));
+      }
+    }
+    assertEquals("SELECT * FROM MyTable t WHERE LOWER(t.name) > :p1 ORDER BY LOWER(t.name)",
+            new QueryBuilder().from("MyTable", "t").seekAfter("LOWER(t.name)", "a").getSql());
+  }
+}
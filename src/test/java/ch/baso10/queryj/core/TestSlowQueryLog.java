@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSlowQueryLog
+{
+
+  private H2DataSource db;
+  private final AtomicLong clock = new AtomicLong();
+  private final List<QJSlowQuery> captured = new ArrayList<>();
+  private QJSlowQueryLog slowLog;
+  private QJMetrics metrics;
+  private QueryExecutor executor;
+
+  @Before
+  public void setUp() throws SQLException
+  {
+    db = new H2DataSource("slow", "CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20))", "INSERT INTO item SELECT x, 'n' || x FROM SYSTEM_RANGE(1, 10)");
+    slowLog = new QJSlowQueryLog(0, TimeUnit.MILLISECONDS, clock::get)
+            .interval(10, TimeUnit.SECONDS)
+            .sink(captured::add);
+    metrics = new QJMetrics();
+    executor = new QueryExecutor(db.dataSource).listener(QJListener.compose(metrics, slowLog));
+  }
+
+  @After
+  public void tearDown() throws SQLException
+  {
+    db.close();
+  }
+
+  @Test
+  public void testOncePerInterval() throws SQLException
+  {
+    for(int i = 1; i <= 3; i++)
+    {
+      executor.query(new QueryBuilder().from("item").andCompare("id", i), (rs, rowNum) -> rowNum);
+    }
+    assertEquals(1, captured.size());
+    assertEquals(3, slowLog.getSlowCount());
+    QJSlowQuery slowQuery = captured.get(0);
+    assertEquals("SELECT * FROM item t WHERE id = :p1", slowQuery.getSql());
+    assertEquals("[Integer]", slowQuery.getParams());
+    assertEquals(1, slowQuery.getRows());
+    assertNull(slowQuery.getPlan());
+    assertEquals(1, metrics.getAll().size());
+
+    executor.query(new QueryBuilder().from("item").andCompare("name", "=x"), (rs, rowNum) -> rowNum);
+    assertEquals(2, captured.size());
+    assertEquals("[String(1)]", captured.get(1).getParams());
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    executor.query(new QueryBuilder().from("item").andCompare("id", 4), (rs, rowNum) -> rowNum);
+    assertEquals(3, captured.size());
+  }
+
+  @Test
+  public void testBoundedShapes()
+  {
+    for(int i = 0; i < QJSlowQueryLog.MAX_SHAPES + 10; i++)
+    {
+      slowLog.executed("f" + i, "SELECT " + i, new Object[0], 1, 1);
+    }
+    assertEquals(QJSlowQueryLog.MAX_SHAPES, slowLog.getShapeCount());
+    assertEquals(QJSlowQueryLog.MAX_SHAPES, captured.size());
+    assertEquals(QJSlowQueryLog.MAX_SHAPES + 10, slowLog.getSlowCount());
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+    slowLog.executed("new", "SELECT 1", new Object[0], 1, 1);
+    assertEquals(1, slowLog.getShapeCount());
+    assertEquals(QJSlowQueryLog.MAX_SHAPES + 1, captured.size());
+  }
+
+  @Test
+  public void testExplain() throws SQLException
+  {
+    slowLog.explain(db.dataSource).explainExecutor(Runnable::run);
+    executor.query(new QueryBuilder().from("item").andCompare("id", 1), (rs, rowNum) -> rowNum);
+    assertEquals(1, captured.size());
+    String plan = captured.get(0).getPlan();
+    assertTrue(plan, plan.startsWith("SELECT") && plan.contains("ITEM"));
+    assertTrue(captured.get(0).toString().contains("plan:"));
+  }
+
+  @Test
+  public void testExplainOnlySelect() throws SQLException
+  {
+    slowLog.explain(db.dataSource).explainExecutor(Runnable::run).explainPrefix("EXPLAIN ANALYZE ");
+    executor.update(new DeleteBuilder().from("item").andCompare("id", 1));
+    assertEquals(1, captured.size());
+    assertNull(captured.get(0).getPlan());
+    assertEquals(9, executor.query(new QueryBuilder().from("item"), (rs, rowNum) -> rowNum).size());
+    assertTrue(QJSlowQueryLog.isSelect(" (SELECT 1)"));
+    assertTrue(QJSlowQueryLog.isSelect("with x AS (SELECT 1) SELECT * FROM x"));
+    assertTrue(!QJSlowQueryLog.isSelect("UPDATE item SET name = 'x'"));
+  }
+
+  @Test
+  public void testExplainRejected() throws SQLException
+  {
+    slowLog.explain(db.dataSource).explainExecutor(command ->
+    {
+      throw new RejectedExecutionException("full");
+    });
+    QueryBuilder query = new QueryBuilder().from("item").andCompare("id", 1);
+    executor.query(query, (rs, rowNum) -> rowNum);
+    assertEquals(0, captured.size());
+    assertEquals(1, slowLog.getSlowCount());
+
+    slowLog.explainExecutor(Runnable::run);
+    executor.query(query, (rs, rowNum) -> rowNum);
+    assertEquals(1, captured.size());
+    assertTrue(captured.get(0).getPlan() != null);
+  }
+
+  @Test
+  public void testThreshold() throws SQLException
+  {
+    QJSlowQueryLog slow = new QJSlowQueryLog(1, TimeUnit.HOURS).sink(captured::add);
+    new QueryExecutor(db.dataSource).listener(slow).query(new QueryBuilder().from("item"), (rs, rowNum) -> rowNum);
+    assertEquals(0, slow.getSlowCount());
+    assertEquals(0, captured.size());
+  }
+
+  @Test
+  public void testSummary()
+  {
+    assertEquals("[null, Long, String(3), Object[](2)]", QJSlowQueryLog.summary(new Object[]
+    {
+      null, 1L, "abc", new Object[2]
+    }));
+    assertEquals("batch", QJSlowQueryLog.summary(null));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import java.sql.SQLException;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class TestStatementCache
+{
+
+  private static QueryBuilder query(String name, int status)
+  {
+    return new QueryBuilder().from("MyTable", "t")
+            .innerJoin("JoinTable", "jt", "jt.refId = t.id AND jt.status = :status", QJParam.p("status", status))
+            .andWhere(new QueryBuilder("r").andCompare("t.name", name))
+            .orderBy("t.id")
+            .limit(10);
+  }
+
+  @Test
+  public void testSameShape()
+  {
+    QJStatementCache cache = new QJStatementCache(10);
+    String sql = cache.getSql(query("a", 1));
+    assertEquals("SELECT * FROM MyTable t INNER JOIN JoinTable jt ON jt.refId = t.id AND jt.status = :status WHERE (t.name LIKE :r1) ORDER BY t.id LIMIT 10", sql);
+    assertSame(sql, cache.getSql(query("b", 2)));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testDifferentShape()
+  {
+    QJStatementCache cache = new QJStatementCache(10);
+    String sql = cache.getSql(query("a", 1));
+    String other = cache.getSql(query("a", 1).andCompare("t.col", "=1"));
+    assertNotSame(sql, other);
+    assertEquals(0, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void testExecutor() throws SQLException
+  {
+    H2DataSource db = new H2DataSource("statements", "CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20))", "INSERT INTO item VALUES (1, 'a'), (2, 'b')");
+    try
+    {
+      QJStatementCache cache = new QJStatementCache(10);
+      QueryExecutor executor = new QueryExecutor(db.dataSource).statementCache(cache);
+      RowMapper<String> name = (rs, rowNum) -> rs.getString("name");
+      QueryBuilder first = new QueryBuilder().from("item").andCompare("t.id", 1);
+      assertEquals(Arrays.asList("a"), executor.query(first, name));
+      QueryBuilder second = new QueryBuilder().from("item").andCompare("t.id", 2);
+      assertEquals("b", executor.queryFirst(second, name));
+      assertSame(first.getSql(), second.getSql());
+      assertEquals(1, cache.getHits());
+      assertEquals(1, cache.getMisses());
+
+      second.andCompare("t.name", "=b");
+      assertEquals(Arrays.asList("b"), executor.query(second, name));
+      assertEquals(2, cache.getMisses());
+    }
+    finally
+    {
+      db.close();
+    }
+  }
+
+  @Test
+  public void testEviction()
+  {
+    QJStatementCache cache = new QJStatementCache(2);
+    String first = cache.getSql(query("a", 1));
+    cache.getSql(query("a", 1).limit(20));
+    cache.getSql(query("a", 1));
+    cache.getSql(query("a", 1).limit(30));
+    assertEquals(1, cache.getEvictions());
+    assertSame(first, cache.getSql(query("a", 1)));
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.size());
+  }
+}
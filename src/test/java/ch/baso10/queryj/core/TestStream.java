@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestStream
+{
+
+  private H2DataSource db;
+  private QueryExecutor executor;
+
+  @Before
+  public void setUp() throws SQLException
+  {
+    db = new H2DataSource("stream", "CREATE TABLE item (id INT PRIMARY KEY)", "INSERT INTO item SELECT x FROM SYSTEM_RANGE(1, 100000)");
+    executor = new QueryExecutor(db.dataSource).streamFetchSize(500);
+  }
+
+  @After
+  public void tearDown() throws SQLException
+  {
+    db.close();
+  }
+
+  @Test
+  public void testConsumeAll() throws SQLException
+  {
+    long sum = executor.stream(new QueryBuilder().from("item"), (rs, rowNum) -> rs.getLong(1))
+            .mapToLong(Long::longValue)
+            .sum();
+    assertEquals(5000050000L, sum);
+    assertEquals(0, db.open.get());
+  }
+
+  @Test
+  public void testCloseEarly() throws SQLException
+  {
+    QueryBuilder query = new QueryBuilder().from("item", "t").andCompare("t.id", QJOperator.GT, 10).orderBy("t.id");
+    try(Stream<Integer> stream = executor.stream(query, (rs, rowNum) -> rs.getInt(1)))
+    {
+      assertEquals(Arrays.asList(11, 12, 13), stream.limit(3).collect(Collectors.toList()));
+      assertEquals(1, db.open.get());
+    }
+    assertEquals(0, db.open.get());
+  }
+
+  @Test
+  public void testLatencyExcludesConsumer() throws SQLException
+  {
+    long[] latency = new long[1];
+    executor.listener(new QJListener()
+    {
+      @Override
+      public void executed(String fingerprint, String sql, Object[] params, long nanos, long rows)
+      {
+        latency[0] = nanos;
+      }
+    });
+    long start = System.nanoTime();
+    try(Stream<Integer> stream = executor.stream(new QueryBuilder().from("item", "t").orderBy("t.id"), (rs, rowNum) -> rs.getInt(1)))
+    {
+      stream.limit(2).forEach(id -> sleep(100));
+    }
+    long total = System.nanoTime() - start;
+    assertTrue(latency[0] > 0);
+    assertTrue(latency[0] + " of " + total, latency[0] <= total - TimeUnit.MILLISECONDS.toNanos(200));
+  }
+
+  private static void sleep(long millis)
+  {
+    try
+    {
+      Thread.sleep(millis);
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void testMapperFailure() throws SQLException
+  {
+    try(Stream<Integer> stream = executor.stream(new QueryBuilder().from("item"), (rs, rowNum) ->
+    {
+      if(rowNum == 5)
+      {
+        throw new SQLException("row " + rowNum);
+      }
+      return rowNum;
+    }))
+    {
+      stream.count();
+      fail();
+    }
+    catch(QJUncheckedSQLException e)
+    {
+      assertEquals("row 5", e.getCause().getMessage());
+    }
+    assertEquals(0, db.open.get());
+  }
+
+  @Test
+  public void testInvalidQuery()
+  {
+    try
+    {
+      executor.stream(new QueryBuilder().from("missing"), (rs, rowNum) -> rowNum);
+      fail();
+    }
+    catch(SQLException e)
+    {
+      // expected
+    }
+    assertEquals(0, db.open.get());
+  }
+}
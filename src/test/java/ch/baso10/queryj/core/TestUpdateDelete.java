@@ -0,0 +1,250 @@
+/*
+ * Copyright 2018 baso10.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ch.baso10.queryj.core;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static ch.baso10.queryj.core.QJParam.p;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class TestUpdateDelete
+{
+
+  @Test
+  public void testUpdate()
+  {
+    UpdateBuilder update = new UpdateBuilder().update("MyTable", "t")
+            .set("t.name", "a")
+            .setExpression("t.version = t.version + 1")
+            .andCompare("t.id", 5)
+            .andIn("t.status", Arrays.asList(1, 2, 3));
+    assertEquals("UPDATE MyTable t SET t.name = :p1, t.version = t.version + 1 WHERE t.id = :p2 AND t.status IN (:p3, :p4, :p5, :p6)", update.getSql());
+    assertEquals("a", update.getParams().get("p1"));
+    assertEquals(5, update.getParams().get("p2"));
+  }
+
+  @Test
+  public void testDelete()
+  {
+    DeleteBuilder delete = new DeleteBuilder().from("MyTable")
+            .andWhere("status = :status", p("status", 2))
+            .orWhere(new QueryBuilder("g").strict().andCompare("name", "=x"));
+    assertEquals("DELETE FROM MyTable WHERE status = :status OR (name = :g1)", delete.getSql());
+    assertEquals("DELETE FROM MyTable WHERE status = ? OR (name = ?)", delete.getPositionalSql());
+    assertArrayEquals(new Object[]
+    {
+      2, "x"
+    }, delete.getPositionalParams());
+    assertEquals("DELETE FROM MyTable", new DeleteBuilder().from("MyTable").allRows().getSql());
+  }
+
+  @Test
+  public void testWithoutCondition()
+  {
+    try
+    {
+      new DeleteBuilder().from("MyTable").andCompare("name", null).getSql();
+      fail();
+    }
+    catch(IllegalArgumentException ex)
+    {
+      assertEquals("No value for name", ex.getMessage());
+    }
+    try
+    {
+      new DeleteBuilder().from("MyTable").getSql();
+      fail();
+    }
+    catch(IllegalStateException ex)
+    {
+      // expected
+    }
+    try
+    {
+      new UpdateBuilder().update("MyTable").set("status", 1).getSql();
+      fail();
+    }
+    catch(IllegalStateException ex)
+    {
+      // expected
+    }
+    assertEquals("UPDATE MyTable SET status = :p1", new UpdateBuilder().update("MyTable").set("status", 1).allRows().getSql());
+  }
+
+  @Test
+  public void testStrictGroups()
+  {
+    try
+    {
+      new DeleteBuilder().from("MyTable").andCompare("status", 1).orWhere(new QueryBuilder("g").andCompare("name", null));
+      fail();
+    }
+    catch(IllegalArgumentException ex)
+    {
+      // a lenient group would have skipped the value
+    }
+    try
+    {
+      new UpdateBuilder().update("MyTable").set("status", 1).andWhere(new QueryBuilder("g").strict().andCompare("name", ""));
+      fail();
+    }
+    catch(IllegalArgumentException ex)
+    {
+      assertEquals("No value for name", ex.getMessage());
+    }
+    try
+    {
+      new QueryBuilder("g").strict().andWhere(new QueryBuilder("h").andCompare("id", 1));
+      fail();
+    }
+    catch(IllegalArgumentException ex)
+    {
+      // nested groups of strict groups are strict as well
+    }
+    try
+    {
+      new QueryBuilder("g").andCompare("id", 1).strict();
+      fail();
+    }
+    catch(IllegalStateException ex)
+    {
+      // expected
+    }
+    DeleteBuilder delete = new DeleteBuilder().from("MyTable").andCompare("status", 1)
+            .orWhere(new QueryBuilder("g").strict().andCompare("name", "a").andIn("id", Arrays.asList(1, 2)));
+    assertEquals("DELETE FROM MyTable WHERE status = :p1 OR (name = :g1 AND id IN (:g2, :g3))", delete.normalize().getSql());
+  }
+
+  @Test
+  public void testStrictValues()
+  {
+    assertEquals("DELETE FROM MyTable WHERE name = :p1", new DeleteBuilder().from("MyTable").andCompare("name", "a*").getSql());
+    assertEquals("a*", new DeleteBuilder().from("MyTable").andCompare("name", "a*").getParams().get("p1"));
+    assertEquals("UPDATE MyTable SET status = :p1 WHERE name LIKE :p2",
+            new UpdateBuilder().update("MyTable").set("status", 1).andCompare("name", "<a").getSql());
+    assertEquals("SELECT * FROM MyTable t WHERE name LIKE :p1", new QueryBuilder().from("MyTable").andCompare("name", "a").getSql());
+    Object[] invalid =
+    {
+      null, "", " ", "abc", ">=x"
+    };
+    for(Object value : invalid)
+    {
+      try
+      {
+        new DeleteBuilder().from("MyTable").andCompare("id", value, Integer.class);
+        fail(String.valueOf(value));
+      }
+      catch(IllegalArgumentException ex)
+      {
+        // expected
+      }
+    }
+    try
+    {
+      new UpdateBuilder().update("MyTable").set("status", 1).andIn("id", null);
+      fail();
+    }
+    catch(IllegalArgumentException ex)
+    {
+      // expected
+    }
+    List<String> invalidValues = new ArrayList<>();
+    try
+    {
+      new DeleteBuilder().from("MyTable").onInvalidValue((field, value, type) -> invalidValues.add(field)).andCompare("id", "x", Long.class);
+      fail();
+    }
+    catch(IllegalArgumentException ex)
+    {
+      assertEquals(Collections.singletonList("id"), invalidValues);
+    }
+  }
+
+  @Test
+  public void testBatchClear()
+  {
+    QJBatch batch = new QJBatch(new DeleteBuilder().from("MyTable").andCompare("id", 1));
+    assertEquals(Collections.singleton("MyTable"), batch.getTables());
+    batch.clear();
+    assertEquals(0, batch.size());
+    assertEquals(Collections.emptySet(), batch.getTables());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchShapeMismatch()
+  {
+    new QJBatch(new DeleteBuilder().from("MyTable").andCompare("id", 1))
+            .add(new DeleteBuilder().from("MyTable").andCompare("id", 1).andCompare("status", 2));
+  }
+
+  @Test
+  public void testBatch() throws SQLException
+  {
+    try(Connection connection = DriverManager.getConnection("jdbc:h2:mem:batch"))
+    {
+      try(Statement statement = connection.createStatement())
+      {
+        statement.execute("CREATE TABLE item (id INT PRIMARY KEY, price INT, version INT)");
+        statement.execute("INSERT INTO item SELECT x, 0, 0 FROM SYSTEM_RANGE(1, 5)");
+      }
+      QJBatch batch = new QJBatch(update(1, 10)).batchSize(2);
+      for(int i = 2; i <= 5; i++)
+      {
+        batch.add(update(i, i * 10));
+      }
+      batch.add(update(99, 0));
+      assertEquals("UPDATE item SET price = :p1, version = version + 1 WHERE id = :p2", batch.getSql());
+      assertArrayEquals(new int[]
+      {
+        1, 1, 1, 1, 1, 0
+      }, batch.execute(connection));
+      assertEquals(0, batch.size());
+
+      try(Statement statement = connection.createStatement();
+              ResultSet rs = statement.executeQuery("SELECT SUM(price), SUM(version) FROM item"))
+      {
+        rs.next();
+        assertEquals(150, rs.getInt(1));
+        assertEquals(5, rs.getInt(2));
+      }
+
+      QJBatch delete = new QJBatch(new DeleteBuilder().from("item").andCompare("id", 1));
+      delete.add(new DeleteBuilder().from("item").andCompare("id", 2).compile());
+      assertArrayEquals(new int[]
+      {
+        1, 1
+      }, delete.execute(connection));
+    }
+  }
+
+  private static UpdateBuilder update(int id, int price)
+  {
+    return new UpdateBuilder().update("item")
+            .set("price", price)
+            .setExpression("version = version + 1")
+            .andCompare("id", id);
+  }
+}